@@ -0,0 +1,94 @@
+package org.vaadin.MaskedTextField;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mask compilation and config generation hot paths, definitions of SWING masks are measured by
+ * {@link SwingDefinitionsBenchmark}.
+ * Run with {@code mvn -Pjmh test-compile exec:exec}, the gc profiler reports allocation rate.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MaskGenerationBenchmark {
+    private static final String SWING_SHORT = "###-###";
+    private static final String SWING_LONG = "UUUU-####-LLLL-AAAA-????-HHHH-****-####-'#'U##";
+    private static final String INPUTMASK_SHORT = "999-999";
+    private static final String INPUTMASK_LONG = "+7 (999) 999-99-99 aaa-***-AAAA 9999 9999 9999 9999";
+    private static final String ALLOWED_CHARS = "0123456789ABCDEFabcdefАБВабв-_.";
+
+    @Param({"SWING", "INPUTMASK"})
+    public MaskedTextField.MaskFormat format;
+
+    @Param({"SHORT", "LONG"})
+    public String length;
+
+    @Param({"false", "true"})
+    public boolean withAllowedChars;
+
+    private String mask;
+    private String allowedChars;
+    private MaskedTextField field;
+    private MaskedTextField.Definition[] definitions;
+    private CompiledMask compiledMask;
+
+    @Setup
+    public void setup() {
+        boolean shortMask = "SHORT".equals(length);
+        if (format == MaskedTextField.MaskFormat.SWING)
+            mask = shortMask ? SWING_SHORT : SWING_LONG;
+        else
+            mask = shortMask ? INPUTMASK_SHORT : INPUTMASK_LONG;
+        allowedChars = withAllowedChars ? ALLOWED_CHARS : null;
+        field = new MaskedTextField(mask, allowedChars, true, "_", MaskedTextField.MaskType.LAZY, format);
+        definitions = format == MaskedTextField.MaskFormat.SWING ? field.genDefinitionsFromSwingMask(mask, allowedChars) : null;
+        compiledMask = CompiledMask.compile(mask, allowedChars, format);
+    }
+
+    @Benchmark
+    public CompiledMask compileMask() {
+        return CompiledMask.compile(mask, allowedChars, format);
+    }
+
+    @Benchmark
+    public void charClassRegexp(Blackhole blackhole) {
+        for (int i = 0; i < compiledMask.length(); i++) {
+            if (!compiledMask.isLiteral(i))
+                blackhole.consume(compiledMask.getCharClass(i).toRegexp());
+        }
+    }
+
+    @Benchmark
+    public String generateInputmaskConfig() {
+        return field.generateInputmaskConfig("_", mask, false, definitions);
+    }
+
+    @Benchmark
+    public String fullConfig() {
+        CompiledMask compiled = CompiledMask.compile(mask, allowedChars, format);
+        if (format == MaskedTextField.MaskFormat.SWING)
+            return field.generateInputmaskConfig("_", compiled.toInputmaskMask(), false, field.genDefinitions(compiled));
+        return field.generateInputmaskConfig("_", mask, false);
+    }
+
+    @Benchmark
+    public MaskEngine compileEngine() {
+        return MaskEngine.of(mask, allowedChars, format, "_");
+    }
+}
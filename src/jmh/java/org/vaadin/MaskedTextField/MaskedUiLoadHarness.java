@@ -0,0 +1,143 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+import com.vaadin.flow.internal.ConstantPool;
+import com.vaadin.flow.internal.JsonCodec;
+import com.vaadin.flow.internal.StateTree;
+
+import java.io.Serializable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Server side load of UIs with many masked fields, without a browser.
+ * Builds one UI per simulated session, each with a form of masked fields like {@code AddonView}, and reports
+ * retained heap per field, the size of the first response of a UI and the rate of pending JS invocations.
+ * <p>
+ * Run with {@code mvn -Pjmh test-compile exec:exec@load -Dload.sessions=500 -Dload.fields=40}.
+ */
+public class MaskedUiLoadHarness {
+    private static final String[] SWING_MASKS = {"####-###-###", "+7 (###) ###-##-##", "UU-####", "HHHH HHHH"};
+    private static final String[] INPUTMASK_MASKS = {"9999-999-999", "+7 (999) 999-99-99", "aa-9999", "[9]99.99"};
+    private static final long ROUND_TRIPS_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final int sessions;
+    private final int fieldsPerUi;
+
+    MaskedUiLoadHarness(int sessions, int fieldsPerUi) {
+        this.sessions = sessions;
+        this.fieldsPerUi = fieldsPerUi;
+    }
+
+    public static void main(String[] args) {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int fields = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        new MaskedUiLoadHarness(sessions, fields).run();
+    }
+
+    void run() {
+        System.out.printf("sessions: %d, fields per UI: %d%n", sessions, fieldsPerUi);
+        // warm up class loading and the config cache, so they do not count as retained heap
+        flush(createUi());
+        long before = usedHeap();
+        List<UI> uis = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++)
+            uis.add(createUi());
+        long retained = usedHeap() - before;
+        long fields = (long) sessions * fieldsPerUi;
+        System.out.printf("retained heap: %d KiB total, %d bytes per UI, %d bytes per field%n",
+                retained / 1024, retained / sessions, retained / fields);
+
+        long changesSize = 0;
+        long invocationsSize = 0;
+        long invocations = 0;
+        for (UI ui : uis) {
+            Response response = flush(ui);
+            changesSize += response.changesSize;
+            invocationsSize += response.invocationsSize;
+            invocations += response.invocations;
+        }
+        System.out.printf("first response per UI: %d bytes of changes, %d bytes in %.1f JS invocations%n",
+                changesSize / sessions, invocationsSize / sessions, (double) invocations / sessions);
+
+        measureRoundTrips(uis);
+    }
+
+    /**
+     * Every round trip changes the placeholder of all fields of a UI and flushes the UI, like a server push would.
+     */
+    private void measureRoundTrips(List<UI> uis) {
+        long invocations = 0;
+        long invocationsSize = 0;
+        long roundTrips = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            UI ui = uis.get((int) (roundTrips % uis.size()));
+            String placeholder = roundTrips / uis.size() % 2 == 0 ? "*" : "_";
+            ui.getChildren().flatMap(form -> form.getChildren())
+                    .forEach(field -> ((MaskedTextField) field).setPlaceholder(placeholder));
+            Response response = flush(ui);
+            invocations += response.invocations;
+            invocationsSize += response.invocationsSize;
+            roundTrips++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < ROUND_TRIPS_NANOS);
+        double seconds = elapsed / 1e9;
+        System.out.printf("round trips: %.0f/s, JS invocations: %.0f/s, %.1f per round trip, %.0f KiB/s%n",
+                roundTrips / seconds, invocations / seconds, (double) invocations / roundTrips,
+                invocationsSize / seconds / 1024);
+    }
+
+    private UI createUi() {
+        UI ui = new UI();
+        Div form = new Div();
+        for (int i = 0; i < fieldsPerUi; i++) {
+            boolean swing = i % 2 == 0;
+            String[] masks = swing ? SWING_MASKS : INPUTMASK_MASKS;
+            MaskedTextField field = new MaskedTextField(masks[i / 2 % masks.length], null, true, "_",
+                    MaskedTextField.MaskType.LAZY,
+                    swing ? MaskedTextField.MaskFormat.SWING : MaskedTextField.MaskFormat.INPUTMASK);
+            field.setId("field" + i);
+            form.add(field);
+        }
+        ui.add(form);
+        return ui;
+    }
+
+    /**
+     * Collects what would be written to the client, the way the UIDL writer does, and measures its JSON size.
+     */
+    private static Response flush(UI ui) {
+        Response response = new Response();
+        StateTree stateTree = ui.getInternals().getStateTree();
+        stateTree.runExecutionsBeforeClientResponse();
+        ConstantPool constantPool = new ConstantPool();
+        stateTree.collectChanges(change -> response.changesSize += change.toJson(constantPool).toJson().length());
+        for (PendingJavaScriptInvocation invocation : ui.getInternals().dumpPendingJavaScriptInvocations()) {
+            response.invocations++;
+            response.invocationsSize += invocation.getInvocation().getExpression().length();
+            for (Serializable parameter : invocation.getInvocation().getParameters())
+                response.invocationsSize += JsonCodec.encodeWithTypeInfo(parameter).toJson().length();
+        }
+        return response;
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++)
+            System.gc();
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static class Response {
+        long changesSize;
+        long invocationsSize;
+        long invocations;
+    }
+}
@@ -0,0 +1,63 @@
+package org.vaadin.MaskedTextField;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inputmask definitions, generated for SWING masks only.
+ * Run with {@code mvn -Pjmh test-compile exec:exec -Djmh.include=SwingDefinitionsBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SwingDefinitionsBenchmark {
+    private static final String SHORT = "###-###";
+    private static final String LONG = "UUUU-####-LLLL-AAAA-????-HHHH-****-####-'#'U##";
+    private static final String ALLOWED_CHARS = "0123456789ABCDEFabcdefАБВабв-_.";
+
+    @Param({"SHORT", "LONG"})
+    public String length;
+
+    @Param({"false", "true"})
+    public boolean withAllowedChars;
+
+    private String mask;
+    private String allowedChars;
+    private MaskedTextField field;
+    private MaskedTextField.Definition[] definitions;
+
+    @Setup
+    public void setup() {
+        mask = "SHORT".equals(length) ? SHORT : LONG;
+        allowedChars = withAllowedChars ? ALLOWED_CHARS : null;
+        field = new MaskedTextField(mask, allowedChars, true, "_", MaskedTextField.MaskType.LAZY,
+                MaskedTextField.MaskFormat.SWING);
+        definitions = field.genDefinitionsFromSwingMask(mask, allowedChars);
+    }
+
+    @Benchmark
+    public MaskedTextField.Definition[] genDefinitionsFromSwingMask() {
+        return field.genDefinitionsFromSwingMask(mask, allowedChars);
+    }
+
+    @Benchmark
+    public void definitionsToJson(Blackhole blackhole) {
+        for (MaskedTextField.Definition definition : definitions)
+            blackhole.consume(definition.toJson());
+    }
+}
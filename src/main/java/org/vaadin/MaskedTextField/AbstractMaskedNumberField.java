@@ -0,0 +1,101 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.AbstractCompositeField;
+import com.vaadin.flow.component.HasSize;
+import com.vaadin.flow.component.HasStyle;
+import com.vaadin.flow.component.HasValidation;
+import elemental.json.JsonObject;
+
+/**
+ * Numeric field based on the {@code numeric} aliases of Inputmask, needs the
+ * {@link MaskedTextField.InputmaskBuild#FULL} build. The value is parsed from the unmasked client value
+ * with {@link NumberParser}, i.e. without intermediate strings.
+ *
+ * @param <C> the field type
+ * @param <T> the value type
+ */
+public abstract class AbstractMaskedNumberField<C extends AbstractMaskedNumberField<C, T>, T extends Number>
+        extends AbstractCompositeField<MaskedTextField, C, T> implements HasSize, HasStyle, HasValidation {
+
+    protected AbstractMaskedNumberField(JsonObject options) {
+        super(null);
+        MaskedTextField field = getContent();
+        field.setInputmaskOptions(options);
+        field.addValueChangeListener(event -> {
+            String value = event.getValue();
+            T parsed = parse(value);
+            if (parsed == null && !value.isEmpty())
+                field.setInvalid(true);
+            setModelValue(parsed, event.isFromClient());
+        });
+    }
+
+    @Override
+    protected MaskedTextField initContent() {
+        return new MaskedTextField("9", null, false, null, MaskedTextField.MaskType.LAZY,
+                MaskedTextField.MaskFormat.INPUTMASK);
+    }
+
+    /**
+     * @param value unmasked value, never {@code null}
+     * @return parsed value, {@code null} if the value is empty or out of range
+     */
+    protected abstract T parse(String value);
+
+    /**
+     * @return value as understood by the {@code numeric} aliases, i.e. with {@code .} as radix point
+     */
+    protected abstract String format(T value);
+
+    @Override
+    protected void setPresentationValue(T value) {
+        getContent().setValue(value == null ? "" : format(value));
+    }
+
+    /**
+     * @return the inner text field, e.g. to change the sync mode with {@link MaskedTextField#setMaskType}
+     */
+    public MaskedTextField getTextField() {
+        return getContent();
+    }
+
+    public String getLabel() {
+        return getContent().getLabel();
+    }
+
+    public void setLabel(String label) {
+        getContent().setLabel(label);
+    }
+
+    @Override
+    public void setErrorMessage(String errorMessage) {
+        getContent().setErrorMessage(errorMessage);
+    }
+
+    @Override
+    public String getErrorMessage() {
+        return getContent().getErrorMessage();
+    }
+
+    @Override
+    public void setInvalid(boolean invalid) {
+        getContent().setInvalid(invalid);
+    }
+
+    @Override
+    public boolean isInvalid() {
+        return getContent().isInvalid();
+    }
+
+    @Override
+    public void setReadOnly(boolean readOnly) {
+        super.setReadOnly(readOnly);
+        getContent().setReadOnly(readOnly);
+    }
+
+    @Override
+    public void setRequiredIndicatorVisible(boolean requiredIndicatorVisible) {
+        super.setRequiredIndicatorVisible(requiredIndicatorVisible);
+        getContent().setRequiredIndicatorVisible(requiredIndicatorVisible);
+    }
+}
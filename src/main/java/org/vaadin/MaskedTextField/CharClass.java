@@ -0,0 +1,112 @@
+package org.vaadin.MaskedTextField;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable set of characters backed by a primitive bitset.
+ */
+public final class CharClass implements Serializable {
+    public static final CharClass EMPTY = new CharClass(new long[0]);
+
+    private final long[] words;
+
+    private CharClass(long[] words) {
+        int length = words.length;
+        while (length > 0 && words[length - 1] == 0)
+            length--;
+        this.words = length == words.length ? words : Arrays.copyOf(words, length);
+    }
+
+    public static CharClass of(CharSequence chars) {
+        long[] words = new long[0];
+        for (int i = 0; i < chars.length(); i++) {
+            char c = chars.charAt(i);
+            int word = c >>> 6;
+            if (word >= words.length)
+                words = Arrays.copyOf(words, word + 1);
+            words[word] |= 1L << c;
+        }
+        return new CharClass(words);
+    }
+
+    public static CharClass range(char from, char to) {
+        if (from > to)
+            throw new IllegalArgumentException("Wrong range " + from + "-" + to);
+        long[] words = new long[(to >>> 6) + 1];
+        for (int c = from; c <= to; c++)
+            words[c >>> 6] |= 1L << c;
+        return new CharClass(words);
+    }
+
+    public boolean contains(char c) {
+        int word = c >>> 6;
+        return word < words.length && (words[word] & (1L << c)) != 0;
+    }
+
+    public boolean isEmpty() {
+        return words.length == 0;
+    }
+
+    public CharClass union(CharClass other) {
+        long[] longer = words.length >= other.words.length ? words : other.words;
+        long[] shorter = longer == words ? other.words : words;
+        long[] result = longer.clone();
+        for (int i = 0; i < shorter.length; i++)
+            result[i] |= shorter[i];
+        return new CharClass(result);
+    }
+
+    public CharClass intersect(CharClass other) {
+        long[] result = new long[Math.min(words.length, other.words.length)];
+        for (int i = 0; i < result.length; i++)
+            result[i] = words[i] & other.words[i];
+        return new CharClass(result);
+    }
+
+    /**
+     * @return JavaScript regexp character class, e.g. {@code [0-9A-F]}
+     */
+    public String toRegexp() {
+        StringBuilder regexp = new StringBuilder("[");
+        int limit = words.length << 6;
+        int c = 0;
+        while (c < limit) {
+            if (!contains((char) c)) {
+                c++;
+                continue;
+            }
+            int end = c;
+            while (end + 1 < limit && contains((char) (end + 1)))
+                end++;
+            appendEscaped(regexp, (char) c);
+            if (end - c > 1)
+                regexp.append('-');
+            if (end > c)
+                appendEscaped(regexp, (char) end);
+            c = end + 1;
+        }
+        return regexp.append(']').toString();
+    }
+
+    private static void appendEscaped(StringBuilder regexp, char c) {
+        if (c == '\\' || c == ']' || c == '[' || c == '^' || c == '-')
+            regexp.append('\\');
+        regexp.append(c);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || o instanceof CharClass && Arrays.equals(words, ((CharClass) o).words);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return toRegexp();
+    }
+}
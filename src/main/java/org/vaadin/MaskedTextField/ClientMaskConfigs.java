@@ -0,0 +1,42 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Mask configs the page of a UI already received, by the key the connector caches them with.
+ * Fields whose config is known to the page send only the key.
+ */
+class ClientMaskConfigs implements Serializable {
+    private final Map<String, Integer> keys = new HashMap<>();
+    private int nextKey;
+
+    private ClientMaskConfigs() {
+    }
+
+    /**
+     * @return key of the config, {@code null} if the page does not have it
+     */
+    static Integer find(UI ui, String config) {
+        ClientMaskConfigs configs = ComponentUtil.getData(ui, ClientMaskConfigs.class);
+        return configs == null ? null : configs.keys.get(config);
+    }
+
+    /**
+     * @return new key, the config must be sent with it in this round trip
+     */
+    static int register(UI ui, String config) {
+        ClientMaskConfigs configs = ComponentUtil.getData(ui, ClientMaskConfigs.class);
+        if (configs == null) {
+            configs = new ClientMaskConfigs();
+            ComponentUtil.setData(ui, ClientMaskConfigs.class, configs);
+        }
+        int key = configs.nextKey++;
+        configs.keys.put(config, key);
+        return key;
+    }
+}
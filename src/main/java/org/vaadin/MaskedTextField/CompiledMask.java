@@ -0,0 +1,413 @@
+package org.vaadin.MaskedTextField;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Immutable result of a single pass over a mask: one token per position, either a literal or a slot with
+ * its {@link CharClass}, casing and optional flag. Shared by the Inputmask config generator and
+ * {@link MaskEngine}, safe to share between threads.
+ * <p>
+ * SWING masks follow {@link javax.swing.text.MaskFormatter}: {@code # U L A ? H *} slots and {@code '} escapes.
+ * INPUTMASK masks support {@code 9 a * A & #} slots, {@code \} escapes, {@code [...]} optional parts and
+ * {@code {n}} repeats. Allowed chars further restrict every SWING slot. INPUTMASK masks ignore them,
+ * like the client config, which never carries them.
+ * <p>
+ * Other Inputmask syntax, e.g. {@code {1,3}}, {@code {+}} repeats or {@code (..)|(..)} alternators, compiles to an
+ * unsupported mask without tokens, see {@link #isSupported()}. Such masks are still sent to the client as is.
+ */
+public final class CompiledMask implements Serializable {
+    public static final byte CASING_NONE = 0;
+    public static final byte CASING_UPPER = 1;
+    public static final byte CASING_LOWER = 2;
+
+    public static final char DIGIT = '#';
+    public static final char ESCAPE_CHAR = '\'';
+    public static final char UPPERCASE = 'U';
+    public static final char LOWERCASE = 'L';
+    public static final char ANY_CHAR_AND_NUM = 'A';
+    public static final char ANY_CHAR = '?';
+    public static final char ANY_HEX = 'H';
+    public static final char ANYTHING = '*';
+
+    static final CharClass DIGITS = CharClass.range('0', '9');
+    static final CharClass UPPER_LETTERS = CharClass.range('A', 'Z')
+            .union(CharClass.range('А', 'Я')).union(CharClass.of("Ё"));
+    static final CharClass LOWER_LETTERS = CharClass.range('a', 'z')
+            .union(CharClass.range('а', 'я')).union(CharClass.of("ё"));
+    static final CharClass LETTERS = UPPER_LETTERS.union(LOWER_LETTERS);
+    static final CharClass LETTERS_AND_DIGITS = LETTERS.union(DIGITS);
+    static final CharClass HEX = DIGITS.union(CharClass.range('A', 'F')).union(CharClass.range('a', 'f'));
+    static final CharClass SYMBOLS = CharClass.of(".*\\!@#$%^&()-+~|/_?<>{}`'[]");
+    static final CharClass ANY = LETTERS_AND_DIGITS.union(SYMBOLS);
+    /**
+     * Letters of the Inputmask {@code a} definition
+     */
+    static final CharClass INPUTMASK_LETTERS = CharClass.range('A', 'Z').union(CharClass.range('a', 'z'))
+            .union(CharClass.range('А', 'я')).union(CharClass.of("Ёёµ"))
+            .union(CharClass.range('À', 'ÿ'));
+
+    private final String mask;
+    private final String allowedChars;
+    private final MaskedTextField.MaskFormat format;
+    private final char[] symbols;
+    private final CharClass[] classes;
+    private final byte[] casings;
+    private final boolean[] optional;
+    private final int requiredSlots;
+    private final boolean supported;
+
+    private CompiledMask(String mask, String allowedChars, MaskedTextField.MaskFormat format, char[] symbols,
+                         CharClass[] classes, byte[] casings, boolean[] optional, boolean supported) {
+        this.supported = supported;
+        this.mask = mask;
+        this.allowedChars = allowedChars;
+        this.format = format;
+        this.symbols = symbols;
+        this.classes = classes;
+        this.casings = casings;
+        this.optional = optional;
+        int required = 0;
+        for (int i = 0; i < classes.length; i++) {
+            if (classes[i] != null && !optional[i])
+                required++;
+        }
+        this.requiredSlots = required;
+    }
+
+    public static CompiledMask compile(String mask, String allowedChars, MaskedTextField.MaskFormat format) {
+        if (mask == null)
+            throw new NullPointerException("Mask should not be null");
+        if (allowedChars != null && allowedChars.isEmpty() || format == MaskedTextField.MaskFormat.INPUTMASK)
+            allowedChars = null;
+        return new Compiler(mask, allowedChars, format).compile();
+    }
+
+    public String getMask() {
+        return mask;
+    }
+
+    public String getAllowedChars() {
+        return allowedChars;
+    }
+
+    public MaskedTextField.MaskFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * @return {@code false} if the mask uses Inputmask syntax the server does not understand,
+     * the mask has no tokens then
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+
+    /**
+     * @return number of tokens, literals and slots
+     */
+    public int length() {
+        return symbols.length;
+    }
+
+    public int getRequiredSlots() {
+        return requiredSlots;
+    }
+
+    public boolean isLiteral(int index) {
+        return classes[index] == null;
+    }
+
+    /**
+     * @return literal character, or the mask character which defined the slot
+     */
+    public char getSymbol(int index) {
+        return symbols[index];
+    }
+
+    /**
+     * @return characters accepted by the slot, {@code null} for literals
+     */
+    public CharClass getCharClass(int index) {
+        return classes[index];
+    }
+
+    public byte getCasing(int index) {
+        return casings[index];
+    }
+
+    public boolean isOptional(int index) {
+        return optional[index];
+    }
+
+    /**
+     * @return {@code true} if the slot at index accepts the character after applying the casing of the slot
+     */
+    public boolean accepts(int index, char c) {
+        CharClass charClass = classes[index];
+        return charClass != null && charClass.contains(applyCasing(index, c));
+    }
+
+    public char applyCasing(int index, char c) {
+        switch (casings[index]) {
+            case CASING_UPPER:
+                return Character.toUpperCase(c);
+            case CASING_LOWER:
+                return Character.toLowerCase(c);
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * @return mask for Inputmask.js, SWING slots keep their symbol and need definitions, literals are escaped
+     */
+    public String toInputmaskMask() {
+        if (format != MaskedTextField.MaskFormat.SWING)
+            return mask;
+        StringBuilder result = new StringBuilder(symbols.length * 2);
+        for (int i = 0; i < symbols.length; i++) {
+            if (classes[i] == null)
+                result.append('\\');
+            result.append(symbols[i]);
+        }
+        return result.toString();
+    }
+
+    private static final class Compiler {
+        private final String mask;
+        private final String allowedChars;
+        private final MaskedTextField.MaskFormat format;
+        private final CharClass allowed;
+        private final CharClass[] classCache = new CharClass[128];
+        private char[] symbols;
+        private CharClass[] classes;
+        private byte[] casings;
+        private boolean[] optional;
+        private int length;
+        private boolean supported = true;
+
+        Compiler(String mask, String allowedChars, MaskedTextField.MaskFormat format) {
+            this.mask = mask;
+            this.allowedChars = allowedChars;
+            this.format = format;
+            this.allowed = allowedChars == null ? null : CharClass.of(allowedChars);
+            int capacity = mask.length();
+            symbols = new char[capacity];
+            classes = new CharClass[capacity];
+            casings = new byte[capacity];
+            optional = new boolean[capacity];
+        }
+
+        CompiledMask compile() {
+            if (format == MaskedTextField.MaskFormat.SWING)
+                compileSwing();
+            else
+                supported = compileInputmask();
+            if (!supported)
+                length = 0;
+            return new CompiledMask(mask, allowedChars, format, Arrays.copyOf(symbols, length),
+                    Arrays.copyOf(classes, length), Arrays.copyOf(casings, length), Arrays.copyOf(optional, length),
+                    supported);
+        }
+
+        private void compileSwing() {
+            for (int i = 0; i < mask.length(); i++) {
+                char c = mask.charAt(i);
+                switch (c) {
+                    case DIGIT:
+                    case ANY_CHAR_AND_NUM:
+                    case ANY_CHAR:
+                    case ANY_HEX:
+                    case ANYTHING:
+                        add(c, swingClass(c), CASING_NONE, false);
+                        break;
+                    case UPPERCASE:
+                        add(c, swingClass(c), CASING_UPPER, false);
+                        break;
+                    case LOWERCASE:
+                        add(c, swingClass(c), CASING_LOWER, false);
+                        break;
+                    case ESCAPE_CHAR:
+                        if (++i == mask.length())
+                            throw new IllegalArgumentException("Escape character at the end of mask " + mask);
+                        add(mask.charAt(i), null, CASING_NONE, false);
+                        break;
+                    default:
+                        add(c, null, CASING_NONE, false);
+                }
+            }
+        }
+
+        /**
+         * @return {@code false} if the mask uses syntax beyond the supported subset
+         */
+        private boolean compileInputmask() {
+            boolean inOptional = false;
+            for (int i = 0; i < mask.length(); i++) {
+                char c = mask.charAt(i);
+                switch (c) {
+                    case '{': {
+                        int end = mask.indexOf('}', i);
+                        if (length == 0 || end < 0)
+                            return false;
+                        int repeat = parseRepeat(i + 1, end);
+                        if (repeat < 0)
+                            return false;
+                        int last = length - 1;
+                        for (int r = 1; r < repeat; r++)
+                            add(symbols[last], classes[last], casings[last], optional[last]);
+                        i = end;
+                        break;
+                    }
+                    case '(':
+                    case ')':
+                    case '|':
+                        return false;
+                    case '[':
+                        inOptional = true;
+                        break;
+                    case ']':
+                        inOptional = false;
+                        break;
+                    case '9':
+                    case 'a':
+                    case '*':
+                    case '#':
+                        add(c, inputmaskClass(c), CASING_NONE, inOptional);
+                        break;
+                    case 'A':
+                    case '&':
+                        add(c, inputmaskClass(c), CASING_UPPER, inOptional);
+                        break;
+                    case '\\':
+                        if (++i == mask.length())
+                            return false;
+                        add(mask.charAt(i), null, CASING_NONE, inOptional);
+                        break;
+                    default:
+                        add(c, null, CASING_NONE, inOptional);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return n of a {@code {n}} repeat, {@code -1} for other repeats
+         */
+        private int parseRepeat(int start, int end) {
+            String repeat = mask.substring(start, end).trim();
+            if (repeat.isEmpty() || repeat.length() > 4)
+                return -1;
+            for (int i = 0; i < repeat.length(); i++) {
+                if (repeat.charAt(i) < '0' || repeat.charAt(i) > '9')
+                    return -1;
+            }
+            return Integer.parseInt(repeat);
+        }
+
+        private CharClass swingClass(char symbol) {
+            CharClass charClass = classCache[symbol];
+            if (charClass != null)
+                return charClass;
+            if (allowed == null) {
+                switch (symbol) {
+                    case DIGIT:
+                        charClass = DIGITS;
+                        break;
+                    case UPPERCASE:
+                        charClass = UPPER_LETTERS;
+                        break;
+                    case LOWERCASE:
+                        charClass = LOWER_LETTERS;
+                        break;
+                    case ANY_CHAR_AND_NUM:
+                        charClass = LETTERS_AND_DIGITS;
+                        break;
+                    case ANY_CHAR:
+                        charClass = LETTERS;
+                        break;
+                    case ANY_HEX:
+                        charClass = HEX;
+                        break;
+                    default:
+                        charClass = ANY;
+                }
+            } else {
+                StringBuilder chars = new StringBuilder(allowedChars.length());
+                for (int i = 0; i < allowedChars.length(); i++) {
+                    char c = allowedChars.charAt(i);
+                    boolean letter = Character.isLetter(c);
+                    boolean digit = Character.isDigit(c);
+                    boolean accepted;
+                    switch (symbol) {
+                        case DIGIT:
+                            accepted = digit;
+                            break;
+                        case UPPERCASE:
+                            accepted = letter && Character.isUpperCase(c);
+                            break;
+                        case LOWERCASE:
+                            accepted = letter && !Character.isUpperCase(c);
+                            break;
+                        case ANY_CHAR_AND_NUM:
+                            accepted = letter || digit;
+                            break;
+                        case ANY_CHAR:
+                            accepted = letter;
+                            break;
+                        case ANY_HEX:
+                            accepted = digit || HEX.contains(c);
+                            break;
+                        default:
+                            accepted = true;
+                    }
+                    if (accepted)
+                        chars.append(c);
+                }
+                charClass = CharClass.of(chars);
+            }
+            classCache[symbol] = charClass;
+            return charClass;
+        }
+
+        private CharClass inputmaskClass(char symbol) {
+            CharClass charClass = classCache[symbol];
+            if (charClass != null)
+                return charClass;
+            switch (symbol) {
+                case '9':
+                    charClass = DIGITS;
+                    break;
+                case 'a':
+                case 'A':
+                    charClass = INPUTMASK_LETTERS;
+                    break;
+                case '#':
+                    charClass = HEX;
+                    break;
+                default:
+                    charClass = INPUTMASK_LETTERS.union(DIGITS);
+            }
+            if (allowed != null)
+                charClass = charClass.intersect(allowed);
+            classCache[symbol] = charClass;
+            return charClass;
+        }
+
+        private void add(char symbol, CharClass charClass, byte casing, boolean optionalToken) {
+            if (length == symbols.length) {
+                int capacity = Math.max(length * 2, 8);
+                symbols = Arrays.copyOf(symbols, capacity);
+                classes = Arrays.copyOf(classes, capacity);
+                casings = Arrays.copyOf(casings, capacity);
+                optional = Arrays.copyOf(optional, capacity);
+            }
+            symbols[length] = symbol;
+            classes[length] = charClass;
+            casings[length] = casing;
+            optional[length] = optionalToken;
+            length++;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.ComponentEvent;
+import com.vaadin.flow.component.DomEvent;
+import com.vaadin.flow.component.EventData;
+
+/**
+ * Fired when the client has applied the mask to the input of the field.
+ * The event is only sent from the browser when there is a listener for it.
+ */
+@DomEvent("mask-active")
+public class MaskActiveEvent extends ComponentEvent<MaskedTextField> {
+    private final double latency;
+    private final double timestamp;
+
+    public MaskActiveEvent(MaskedTextField source, boolean fromClient,
+                           @EventData("event.detail.latency") double latency,
+                           @EventData("event.detail.timestamp") double timestamp) {
+        super(source, fromClient);
+        this.latency = latency;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @return milliseconds between receiving the mask config and the mask being active
+     */
+    public double getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return milliseconds since the page started loading, see {@code performance.now()}
+     */
+    public double getTimestamp() {
+        return timestamp;
+    }
+}
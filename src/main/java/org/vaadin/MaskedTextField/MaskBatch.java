@@ -0,0 +1,82 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects fields passed to {@link MaskedTextField#applyAll(java.util.Collection)} and initializes them
+ * with one client invocation before the response of the UI is written.
+ */
+class MaskBatch implements Serializable {
+    private final UI ui;
+    private final LinkedHashSet<MaskedTextField> fields = new LinkedHashSet<>();
+
+    private MaskBatch(UI ui) {
+        this.ui = ui;
+    }
+
+    static void add(UI ui, MaskedTextField field) {
+        MaskBatch batch = ComponentUtil.getData(ui, MaskBatch.class);
+        if (batch == null) {
+            MaskBatch created = new MaskBatch(ui);
+            ComponentUtil.setData(ui, MaskBatch.class, created);
+            ui.beforeClientResponse(ui, context -> created.flush());
+            batch = created;
+        }
+        batch.fields.add(field);
+    }
+
+    private void flush() {
+        ComponentUtil.setData(ui, MaskBatch.class, null);
+        List<Serializable> parameters = new ArrayList<>(fields.size() + 2);
+        StringBuilder elements = new StringBuilder();
+        JsonArray configs = Json.createArray();
+        JsonArray configIndexes = Json.createArray();
+        JsonArray keys = Json.createArray();
+        Map<String, Integer> indexes = new HashMap<>();
+        int configsLength = 0;
+        for (MaskedTextField field : fields) {
+            field.endBatch();
+            String config = field.getMaskConfig();
+            if (config == null || !field.isAttached() || field.getUI().orElse(null) != ui)
+                continue;
+            if (field.getMaskAlias() != null)
+                MaskRegistry.push(ui, field.getMaskAlias(), field);
+            Integer index = indexes.get(config);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(config, index);
+                configs.set(index, config);
+                Integer key = ClientMaskConfigs.find(ui, config);
+                keys.set(index, key != null ? key : ClientMaskConfigs.register(ui, config));
+                configsLength += config.length();
+            }
+            configIndexes.set(configIndexes.length(), index);
+            field.markApplied();
+            if (elements.length() > 0)
+                elements.append(',');
+            elements.append('$').append(parameters.size());
+            parameters.add(field.getElement());
+        }
+        if (parameters.isEmpty())
+            return;
+        MaskedTextField.getMetrics().batchApplied(parameters.size(), indexes.size(), configsLength);
+        int configsParameter = parameters.size();
+        parameters.add(configs);
+        parameters.add(configIndexes);
+        parameters.add(MaskedTextField.getInputmaskBuildName());
+        parameters.add(keys);
+        ui.getPage().executeJs("window.MaskedTextFieldConnector.initAll([" + elements + "], $" + configsParameter
+                + ", $" + (configsParameter + 1) + ", $" + (configsParameter + 2) + ", $" + (configsParameter + 3) + ")",
+                parameters.toArray(new Serializable[0]));
+    }
+}
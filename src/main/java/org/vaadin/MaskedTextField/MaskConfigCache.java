@@ -0,0 +1,175 @@
+package org.vaadin.MaskedTextField;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide LRU cache of generated Inputmask configs.
+ * <p>
+ * Forms usually create many fields with a handful of distinct masks, so the
+ * generator cost is paid once per distinct (generator class, mask, allowedChars,
+ * placeholder, format, greedy) combination instead of once per field per rebuild.
+ * The generator class keeps configs of subclasses that override the generation
+ * apart from the configs of other classes.
+ * All methods are thread-safe.
+ */
+public final class MaskConfigCache {
+    public static final int DEFAULT_MAXIMUM_SIZE = 256;
+
+    private static final Object LOCK = new Object();
+    private static final AtomicLong HITS = new AtomicLong();
+    private static final AtomicLong MISSES = new AtomicLong();
+    private static int maximumSize = DEFAULT_MAXIMUM_SIZE;
+    private static final LinkedHashMap<Key, String> CACHE = new LinkedHashMap<Key, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+            return size() > maximumSize;
+        }
+    };
+
+    private MaskConfigCache() {
+    }
+
+    /**
+     * Same as {@link #get(Class, String, String, String, MaskedTextField.MaskFormat, boolean, Supplier)}
+     * for configs generated by {@link MaskedTextField} itself.
+     */
+    public static String get(String mask, String allowedChars, String placeholder,
+                             MaskedTextField.MaskFormat format, boolean greedy, Supplier<String> generator) {
+        return get(MaskedTextField.class, mask, allowedChars, placeholder, format, greedy, generator);
+    }
+
+    /**
+     * Returns cached config or generates and caches a new one.
+     * Generation runs outside of the lock, so two threads missing the same key
+     * at the same time may both generate it; the result is the same either way.
+     *
+     * @param generatorClass class whose methods generate the config, e.g. the class of the field
+     * @param generator      produces the config on cache miss
+     */
+    public static String get(Class<?> generatorClass, String mask, String allowedChars, String placeholder,
+                             MaskedTextField.MaskFormat format, boolean greedy, Supplier<String> generator) {
+        return get(new Key(generatorClass, mask, allowedChars, placeholder, format, greedy), generator);
+    }
+
+    /**
+     * Multi-mask variant, the list of masks is part of the key as a whole.
+     */
+    static String get(Class<?> generatorClass, List<String> masks, String allowedChars, String placeholder,
+                      MaskedTextField.MaskFormat format, boolean greedy, Supplier<String> generator) {
+        return get(new Key(generatorClass, masks, allowedChars, placeholder, format, greedy), generator);
+    }
+
+    private static String get(Key key, Supplier<String> generator) {
+        String config;
+        synchronized (LOCK) {
+            config = CACHE.get(key);
+        }
+        if (config != null) {
+            HITS.incrementAndGet();
+            return config;
+        }
+        MISSES.incrementAndGet();
+        config = generator.get();
+        synchronized (LOCK) {
+            String existing = CACHE.putIfAbsent(key, config);
+            return existing != null ? existing : config;
+        }
+    }
+
+    public static int getMaximumSize() {
+        synchronized (LOCK) {
+            return maximumSize;
+        }
+    }
+
+    /**
+     * @param maximumSize maximum number of configs kept, {@code 0} disables caching
+     */
+    public static void setMaximumSize(int maximumSize) {
+        if (maximumSize < 0)
+            throw new IllegalArgumentException("Maximum size should not be negative");
+        synchronized (LOCK) {
+            MaskConfigCache.maximumSize = maximumSize;
+            Iterator<Key> iterator = CACHE.keySet().iterator();
+            while (CACHE.size() > maximumSize && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+        }
+    }
+
+    public static int size() {
+        synchronized (LOCK) {
+            return CACHE.size();
+        }
+    }
+
+    public static long getHitCount() {
+        return HITS.get();
+    }
+
+    public static long getMissCount() {
+        return MISSES.get();
+    }
+
+    public static void clear() {
+        synchronized (LOCK) {
+            CACHE.clear();
+        }
+    }
+
+    public static void resetStatistics() {
+        HITS.set(0);
+        MISSES.set(0);
+    }
+
+    private static final class Key {
+        private final Class<?> generatorClass;
+        private final Object mask;
+        private final String allowedChars;
+        private final String placeholder;
+        private final MaskedTextField.MaskFormat format;
+        private final boolean greedy;
+        private final int hash;
+
+        /**
+         * @param mask single mask or list of masks
+         */
+        Key(Class<?> generatorClass, Object mask, String allowedChars, String placeholder,
+            MaskedTextField.MaskFormat format, boolean greedy) {
+            this.generatorClass = generatorClass;
+            this.mask = mask;
+            this.allowedChars = allowedChars;
+            this.placeholder = placeholder;
+            this.format = format;
+            this.greedy = greedy;
+            this.hash = Objects.hash(generatorClass, mask, allowedChars, placeholder, format, greedy);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Key))
+                return false;
+            Key key = (Key) o;
+            return greedy == key.greedy &&
+                    format == key.format &&
+                    generatorClass == key.generatorClass &&
+                    Objects.equals(mask, key.mask) &&
+                    Objects.equals(allowedChars, key.allowedChars) &&
+                    Objects.equals(placeholder, key.placeholder);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package org.vaadin.MaskedTextField;
+
+import java.io.Serializable;
+
+/**
+ * Server side mask engine. Understands {@link MaskedTextField.MaskFormat#SWING} masks
+ * (see {@link javax.swing.text.MaskFormatter}) and a subset of
+ * {@link MaskedTextField.MaskFormat#INPUTMASK} masks, see {@link CompiledMask}.
+ * <p>
+ * Instances are immutable and can be shared between threads.
+ */
+public final class MaskEngine implements Serializable {
+    private final CompiledMask compiledMask;
+    private final char placeholder;
+
+    private MaskEngine(CompiledMask compiledMask, char placeholder) {
+        this.compiledMask = compiledMask;
+        this.placeholder = placeholder;
+    }
+
+    public static MaskEngine of(String mask, String allowedChars, MaskedTextField.MaskFormat format) {
+        return of(mask, allowedChars, format, null);
+    }
+
+    /**
+     * @param placeholder character shown in empty slots, {@code null} or empty to cut the masked value
+     *                    after the last filled slot
+     */
+    public static MaskEngine of(String mask, String allowedChars, MaskedTextField.MaskFormat format, String placeholder) {
+        return of(CompiledMask.compile(mask, allowedChars, format), placeholder);
+    }
+
+    public static MaskEngine of(CompiledMask compiledMask, String placeholder) {
+        if (compiledMask == null)
+            throw new NullPointerException("Compiled mask should not be null");
+        return new MaskEngine(compiledMask, placeholder == null || placeholder.isEmpty() ? 0 : placeholder.charAt(0));
+    }
+
+    public String getMask() {
+        return compiledMask.getMask();
+    }
+
+    public CompiledMask getCompiledMask() {
+        return compiledMask;
+    }
+
+    /**
+     * @return {@code false} if the mask is beyond the server side subset, see {@link CompiledMask#isSupported()};
+     * the other methods throw {@link IllegalStateException} then
+     */
+    public boolean isSupported() {
+        return compiledMask.isSupported();
+    }
+
+    /**
+     * Formats raw or already masked value, see {@link #isMaskedValue(CharSequence)}.
+     * Characters that do not fit the next slot are skipped.
+     *
+     * @return masked value, empty string if no slot was filled
+     */
+    public String mask(String value) {
+        StringBuilder masked = new StringBuilder(compiledMask.length());
+        process(value, masked, null);
+        return masked.toString();
+    }
+
+    /**
+     * @return characters of the filled slots only
+     */
+    public String unmask(String value) {
+        StringBuilder unmasked = new StringBuilder(compiledMask.length());
+        process(value, null, unmasked);
+        return unmasked.toString();
+    }
+
+    /**
+     * @return {@code true} if every required slot of the mask is filled by the value
+     */
+    public boolean isComplete(String value) {
+        return process(value, null, null) == 0;
+    }
+
+    /**
+     * A value is masked if it has the literals of the mask at their positions, at least one of them.
+     * Otherwise it is raw, i.e. only slot characters, and literals of the mask do not consume its characters.
+     * Positions are known up to the first optional token of the mask.
+     */
+    boolean isMaskedValue(CharSequence value) {
+        CompiledMask tokens = compiledMask;
+        int limit = value == null ? 0 : Math.min(value.length(), tokens.length());
+        boolean literalSeen = false;
+        for (int t = 0; t < limit && !tokens.isOptional(t); t++) {
+            if (!tokens.isLiteral(t))
+                continue;
+            if (value.charAt(t) != tokens.getSymbol(t))
+                return false;
+            literalSeen = true;
+        }
+        return literalSeen;
+    }
+
+    /**
+     * Runs value through the mask.
+     *
+     * @return number of required slots left empty
+     */
+    private int process(CharSequence value, StringBuilder masked, StringBuilder unmasked) {
+        if (!compiledMask.isSupported())
+            throw new IllegalStateException("Mask " + compiledMask.getMask() + " is not supported on the server");
+        CompiledMask tokens = compiledMask;
+        int tokenCount = tokens.length();
+        int length = value == null ? 0 : value.length();
+        boolean maskedValue = isMaskedValue(value);
+        int v = 0;
+        int empty = 0;
+        int filledEnd = 0;
+        int lastFilled = -1;
+        for (int t = 0; t < tokenCount; t++) {
+            boolean optional = tokens.isOptional(t);
+            if (tokens.isLiteral(t)) {
+                char literal = tokens.getSymbol(t);
+                if (maskedValue && v < length && value.charAt(v) == literal)
+                    v++;
+                if (masked != null && !optional)
+                    masked.append(literal);
+                continue;
+            }
+            char accepted = 0;
+            if (optional) {
+                if (v < length && tokens.accepts(t, value.charAt(v)))
+                    accepted = tokens.applyCasing(t, value.charAt(v++));
+            } else {
+                while (v < length) {
+                    char c = value.charAt(v++);
+                    if (c == placeholder && placeholder != 0)
+                        break;
+                    if (tokens.accepts(t, c)) {
+                        accepted = tokens.applyCasing(t, c);
+                        break;
+                    }
+                }
+            }
+            if (accepted != 0) {
+                if (masked != null) {
+                    masked.append(accepted);
+                    filledEnd = masked.length();
+                }
+                if (unmasked != null)
+                    unmasked.append(accepted);
+                lastFilled = t;
+            } else if (!optional) {
+                empty++;
+                if (masked != null)
+                    masked.append(placeholder);
+            }
+        }
+        if (masked != null) {
+            if (lastFilled < 0) {
+                masked.setLength(0);
+            } else if (placeholder == 0) {
+                for (int t = lastFilled + 1; t < tokenCount && tokens.isLiteral(t); t++) {
+                    if (!tokens.isOptional(t))
+                        filledEnd++;
+                }
+                masked.setLength(filledEnd);
+            }
+        }
+        return empty;
+    }
+}
@@ -0,0 +1,88 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of named masks.
+ * <p>
+ * The Inputmask options of a registered mask are sent to a page once, as an alias via
+ * {@code Inputmask.extendAliases}, definitions included. They are generated by the first field using the alias
+ * on the page, so subclasses that override the generation apply to aliases too. Fields using the alias, see
+ * {@link MaskedTextField#setMaskAlias(String)}, send only its name. Thread-safe.
+ */
+public final class MaskRegistry {
+    private static final Map<String, MaskSpec> ENTRIES = new ConcurrentHashMap<>();
+
+    private MaskRegistry() {
+    }
+
+    /**
+     * Registers or replaces a named mask. Pages that already received the old mask get the new one
+     * with the next field that uses it.
+     */
+    public static void register(String name, MaskSpec spec) {
+        if (name == null || name.isEmpty())
+            throw new IllegalArgumentException("Alias name should not be empty");
+        if (spec == null)
+            throw new NullPointerException("Mask spec should not be null");
+        ENTRIES.put(name, spec);
+    }
+
+    public static void unregister(String name) {
+        ENTRIES.remove(name);
+    }
+
+    /**
+     * @return registered spec or {@code null}
+     */
+    public static MaskSpec get(String name) {
+        return ENTRIES.get(name);
+    }
+
+    public static Set<String> getNames() {
+        return Collections.unmodifiableSet(ENTRIES.keySet());
+    }
+
+    static MaskSpec getRequired(String name) {
+        MaskSpec spec = get(name);
+        if (spec == null)
+            throw new IllegalArgumentException("Mask alias " + name + " is not registered");
+        return spec;
+    }
+
+    /**
+     * Sends the alias to the page of the UI unless it already has the current version.
+     * Must run before the invocations of fields using the alias.
+     *
+     * @param field field using the alias, generates the config
+     */
+    static void push(UI ui, String name, MaskedTextField field) {
+        String config = field.inputmaskConfig(getRequired(name));
+        PushedAliases pushed = ComponentUtil.getData(ui, PushedAliases.class);
+        if (pushed == null) {
+            pushed = new PushedAliases();
+            ComponentUtil.setData(ui, PushedAliases.class, pushed);
+        }
+        if (config.equals(pushed.configs.get(name)))
+            return;
+        pushed.configs.put(name, config);
+        JsonObject aliases = Json.createObject();
+        aliases.put(name, Json.parse(config));
+        ui.getPage().executeJs("window.MaskedTextFieldConnector.defineAliases($0, $1)",
+                aliases, MaskedTextField.getInputmaskBuildName());
+    }
+
+    private static final class PushedAliases implements Serializable {
+        private final Map<String, String> configs = new HashMap<>();
+    }
+}
@@ -0,0 +1,37 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.ComponentEvent;
+import com.vaadin.flow.component.DomEvent;
+import com.vaadin.flow.component.EventData;
+
+import java.util.List;
+
+/**
+ * Fired when the client switches to another candidate mask, see {@link MaskedTextField#setMaskCandidates(String...)}.
+ * Only changes of the choice are sent, not every keystroke.
+ */
+@DomEvent("mask-selected")
+public class MaskSelectedEvent extends ComponentEvent<MaskedTextField> {
+    private final int index;
+
+    public MaskSelectedEvent(MaskedTextField source, boolean fromClient,
+                             @EventData("event.detail.index") int index) {
+        super(source, fromClient);
+        this.index = index;
+    }
+
+    /**
+     * @return index of the candidate the value completes, {@code -1} if none
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return selected candidate mask, {@code null} if none
+     */
+    public String getMask() {
+        List<String> candidates = getSource().getMaskCandidates();
+        return index < 0 || index >= candidates.size() ? null : candidates.get(index);
+    }
+}
@@ -0,0 +1,146 @@
+package org.vaadin.MaskedTextField;
+
+import java.io.Serializable;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.Objects;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable, interned description of a mask: mask, allowed chars, placeholder and format.
+ * <p>
+ * Equal specs are the same instance, so fields with the same mask share one spec, its {@link CompiledMask}
+ * and its {@link MaskEngine}. Both are created lazily on first use. Specs no longer used by any field
+ * are garbage collected. Thread-safe.
+ * <p>
+ * Only the four values are serialized.
+ */
+public final class MaskSpec implements Serializable {
+    private static final Map<MaskSpec, WeakReference<MaskSpec>> INTERNED = new WeakHashMap<>();
+
+    private final String mask;
+    private final String allowedChars;
+    private final String placeholder;
+    private final MaskedTextField.MaskFormat format;
+    private transient int hash;
+    private transient volatile CompiledMask compiledMask;
+    private transient volatile MaskEngine engine;
+
+    private MaskSpec(String mask, String allowedChars, String placeholder, MaskedTextField.MaskFormat format) {
+        this.mask = mask;
+        this.allowedChars = allowedChars;
+        this.placeholder = placeholder;
+        this.format = format;
+        this.hash = hash(mask, allowedChars, placeholder, format);
+    }
+
+    /**
+     * Uses the name of the format, enum hash codes differ between JVMs.
+     */
+    private static int hash(String mask, String allowedChars, String placeholder, MaskedTextField.MaskFormat format) {
+        return Objects.hash(mask, allowedChars, placeholder, format.name());
+    }
+
+    /**
+     * @return shared spec equal to the given values
+     */
+    public static MaskSpec of(String mask, String allowedChars, String placeholder, MaskedTextField.MaskFormat format) {
+        if (mask == null)
+            throw new NullPointerException("Mask should not be null");
+        if (format == null)
+            throw new NullPointerException("Mask format should not be null");
+        return intern(new MaskSpec(mask, allowedChars, placeholder, format));
+    }
+
+    private static MaskSpec intern(MaskSpec spec) {
+        synchronized (INTERNED) {
+            WeakReference<MaskSpec> reference = INTERNED.get(spec);
+            MaskSpec existing = reference == null ? null : reference.get();
+            if (existing != null)
+                return existing;
+            INTERNED.put(spec, new WeakReference<>(spec));
+            return spec;
+        }
+    }
+
+    public MaskSpec withMask(String mask) {
+        return of(mask, allowedChars, placeholder, format);
+    }
+
+    public MaskSpec withAllowedChars(String allowedChars) {
+        return of(mask, allowedChars, placeholder, format);
+    }
+
+    public MaskSpec withPlaceholder(String placeholder) {
+        return of(mask, allowedChars, placeholder, format);
+    }
+
+    public MaskSpec withFormat(MaskedTextField.MaskFormat format) {
+        return of(mask, allowedChars, placeholder, format);
+    }
+
+    public String getMask() {
+        return mask;
+    }
+
+    public String getAllowedChars() {
+        return allowedChars;
+    }
+
+    public String getPlaceholder() {
+        return placeholder;
+    }
+
+    public MaskedTextField.MaskFormat getFormat() {
+        return format;
+    }
+
+    public CompiledMask getCompiledMask() {
+        CompiledMask result = compiledMask;
+        if (result == null)
+            compiledMask = result = CompiledMask.compile(mask, allowedChars, format);
+        return result;
+    }
+
+    /**
+     * @return engine of the spec, empty slots are shown with the placeholder, {@code _} if there is none
+     */
+    public MaskEngine getEngine() {
+        MaskEngine result = engine;
+        if (result == null)
+            engine = result = MaskEngine.of(getCompiledMask(), placeholder == null || placeholder.isEmpty() ? "_" : placeholder);
+        return result;
+    }
+
+    /**
+     * Deserialized specs are interned again, so fields restored from a session share them with live fields.
+     * The hash is not serialized, compiled mask and engine are rebuilt on first use.
+     */
+    private Object readResolve() {
+        hash = hash(mask, allowedChars, placeholder, format);
+        return intern(this);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof MaskSpec))
+            return false;
+        MaskSpec spec = (MaskSpec) o;
+        return format == spec.format &&
+                mask.equals(spec.mask) &&
+                Objects.equals(allowedChars, spec.allowedChars) &&
+                Objects.equals(placeholder, spec.placeholder);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return format + " " + mask;
+    }
+}
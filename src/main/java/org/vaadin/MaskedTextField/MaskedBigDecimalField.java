@@ -0,0 +1,49 @@
+package org.vaadin.MaskedTextField;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+import java.math.BigDecimal;
+
+/**
+ * Decimal field with a fixed maximum number of fraction digits, e.g. for amounts.
+ */
+public class MaskedBigDecimalField extends AbstractMaskedNumberField<MaskedBigDecimalField, BigDecimal> {
+    private final char radixPoint;
+
+    public MaskedBigDecimalField(int scale) {
+        this(scale, ',', " ");
+    }
+
+    /**
+     * @param scale          maximum number of fraction digits
+     * @param radixPoint     decimal separator shown to the user
+     * @param groupSeparator separator of digit groups, empty for none
+     */
+    public MaskedBigDecimalField(int scale, char radixPoint, String groupSeparator) {
+        super(options(scale, radixPoint, groupSeparator));
+        this.radixPoint = radixPoint;
+    }
+
+    private static JsonObject options(int scale, char radixPoint, String groupSeparator) {
+        if (scale < 0)
+            throw new IllegalArgumentException("Scale should not be negative");
+        JsonObject options = Json.createObject();
+        options.put("alias", "decimal");
+        options.put("digits", scale);
+        options.put("radixPoint", String.valueOf(radixPoint));
+        options.put("groupSeparator", groupSeparator == null ? "" : groupSeparator);
+        options.put("rightAlign", false);
+        return options;
+    }
+
+    @Override
+    protected BigDecimal parse(String value) {
+        return NumberParser.parseBigDecimal(value, radixPoint);
+    }
+
+    @Override
+    protected String format(BigDecimal value) {
+        return value.toPlainString();
+    }
+}
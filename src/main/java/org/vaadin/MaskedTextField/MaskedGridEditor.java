@@ -0,0 +1,47 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.grid.editor.Editor;
+import com.vaadin.flow.data.binder.Binder;
+import com.vaadin.flow.data.binder.Setter;
+import com.vaadin.flow.function.ValueProvider;
+
+/**
+ * Grid editor support. The grid editor reuses a single {@link MaskedTextField} for every edited row,
+ * so the mask is sent to the client once per column instead of once per row.
+ */
+public final class MaskedGridEditor {
+    private MaskedGridEditor() {
+    }
+
+    /**
+     * Uses the field as editor component of the column and binds it with the editor binder of the grid.
+     * A binder is created for the editor if it has none yet.
+     *
+     * @return the field
+     */
+    public static <T> MaskedTextField bind(Grid.Column<T> column, MaskedTextField field,
+                                           ValueProvider<T, String> getter, Setter<T, String> setter) {
+        Editor<T> editor = column.getGrid().getEditor();
+        Binder<T> binder = editor.getBinder();
+        if (binder == null) {
+            binder = new Binder<>();
+            editor.setBinder(binder);
+        }
+        binder.forField(field).bind(getter, setter);
+        column.setEditorComponent(field);
+        return field;
+    }
+
+    /**
+     * Adds a column rendered with {@link MaskedRenderer} and edited with the given field,
+     * both using the mask of the field.
+     */
+    public static <T> Grid.Column<T> addColumn(Grid<T> grid, MaskedTextField field,
+                                               ValueProvider<T, String> getter, Setter<T, String> setter) {
+        Grid.Column<T> column = grid.addColumn(
+                new MaskedRenderer<>(getter, field.getMask(), field.getAllowedChars(), field.getFormat()));
+        bind(column, field, getter, setter);
+        return column;
+    }
+}
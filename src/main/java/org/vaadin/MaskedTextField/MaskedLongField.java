@@ -0,0 +1,39 @@
+package org.vaadin.MaskedTextField;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+/**
+ * Integer field with grouped digits, e.g. for amounts in whole units or numeric identifiers.
+ */
+public class MaskedLongField extends AbstractMaskedNumberField<MaskedLongField, Long> {
+
+    public MaskedLongField() {
+        this(" ");
+    }
+
+    /**
+     * @param groupSeparator separator of digit groups, empty for none
+     */
+    public MaskedLongField(String groupSeparator) {
+        super(options(groupSeparator));
+    }
+
+    private static JsonObject options(String groupSeparator) {
+        JsonObject options = Json.createObject();
+        options.put("alias", "integer");
+        options.put("groupSeparator", groupSeparator == null ? "" : groupSeparator);
+        options.put("rightAlign", false);
+        return options;
+    }
+
+    @Override
+    protected Long parse(String value) {
+        return NumberParser.parseLong(value);
+    }
+
+    @Override
+    protected String format(Long value) {
+        return Long.toString(value);
+    }
+}
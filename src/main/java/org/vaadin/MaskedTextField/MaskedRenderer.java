@@ -0,0 +1,43 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.data.renderer.BasicRenderer;
+import com.vaadin.flow.function.ValueProvider;
+
+/**
+ * Grid renderer that formats values on the server with the same masks {@link MaskedTextField} understands.
+ * The mask is compiled once per renderer and each row only costs one formatting pass, so it is suitable for
+ * large lazy data providers, where rows are rendered batch by batch as they are fetched.
+ * Values are shown as is for masks the server does not support, see {@link CompiledMask#isSupported()}.
+ *
+ * @param <SOURCE> type of the grid items
+ */
+public class MaskedRenderer<SOURCE> extends BasicRenderer<SOURCE, String> {
+    private final MaskEngine engine;
+
+    public MaskedRenderer(ValueProvider<SOURCE, String> valueProvider, String mask, MaskedTextField.MaskFormat format) {
+        this(valueProvider, MaskEngine.of(mask, null, format));
+    }
+
+    public MaskedRenderer(ValueProvider<SOURCE, String> valueProvider, String mask, String allowedChars,
+                          MaskedTextField.MaskFormat format) {
+        this(valueProvider, MaskEngine.of(mask, allowedChars, format));
+    }
+
+    public MaskedRenderer(ValueProvider<SOURCE, String> valueProvider, MaskEngine engine) {
+        super(valueProvider);
+        if (engine == null)
+            throw new NullPointerException("Mask engine should not be null");
+        this.engine = engine;
+    }
+
+    public MaskEngine getEngine() {
+        return engine;
+    }
+
+    @Override
+    protected String getFormattedValue(String value) {
+        if (value == null || value.isEmpty())
+            return "";
+        return engine.isSupported() ? engine.mask(value) : value;
+    }
+}
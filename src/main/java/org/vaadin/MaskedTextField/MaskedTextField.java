@@ -1,18 +1,33 @@
 package org.vaadin.MaskedTextField;
 
+import com.vaadin.flow.component.ComponentEventListener;
+import com.vaadin.flow.component.UI;
 import com.vaadin.flow.component.dependency.JsModule;
 import com.vaadin.flow.component.dependency.NpmPackage;
-import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
-import com.vaadin.flow.component.internal.UIInternals;
 import com.vaadin.flow.component.page.PendingJavaScriptResult;
 import com.vaadin.flow.component.textfield.TextField;
+import com.vaadin.flow.dom.DomEvent;
 import com.vaadin.flow.dom.DomEventListener;
 import com.vaadin.flow.dom.DomListenerRegistration;
-import com.vaadin.flow.internal.StateNode;
+import com.vaadin.flow.internal.ExecutionContext;
+import com.vaadin.flow.internal.nodefeature.ElementPropertyMap;
+import com.vaadin.flow.shared.Registration;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
 import org.apache.commons.lang3.StringUtils;
 
-import java.util.ArrayList;
-import java.util.stream.Collectors;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * @author Sergey.Tolstykh
@@ -20,29 +35,76 @@ import java.util.stream.Collectors;
  * Date 14.06.2022
  */
 @NpmPackage(value = "inputmask", version = "5.0.7")
-@JsModule("inputmask/dist/inputmask.js")
+@JsModule("./masked-text-field-connector.js")
 public class MaskedTextField extends TextField {
     private MaskType maskType;
-    private MaskFormat format;
-    private String allowedChars;
-    private String mask;
+    private MaskSpec spec;
+    private String maskAlias;
+    private String[] maskCandidates;
+    private String maskOptions;
     private boolean containsLiteral;
-    private String placeholder;
-    private final char DIGIT = '#';
-    private final char ESCAPE_CHAR = '\'';
-    private final char UPPERCASE = 'U';
-    private final char LOWERCASE = 'L';
-    private final char ANY_CHAR_AND_NUM = 'A';
-    private final char ANY_CHAR = '?';
-    private final char ANY_HEX = 'H';
-    private final char DELIMITER = '-';
-    private final char ANYTHING = '*';
+    public static final String MASKED_VALUE = "window.MaskedTextFieldConnector.maskedValue(element)";
+    public static final String UNMASKED_VALUE = "window.MaskedTextFieldConnector.unmaskedValue(element)";
+    static final String INPUT_VALUE = "element.inputElement ? element.inputElement.value : null";
+    public static final int DEFAULT_SYNC_INTERVAL = 300;
+    private static volatile MaskedTextFieldMetrics metrics = MaskedTextFieldMetrics.NO_OP;
+    private static volatile InputmaskBuild inputmaskBuild = InputmaskBuild.FULL;
     private DomListenerRegistration inputTextChangeListener;
+    private DomEventListener textChangeListener;
+    private int syncInterval = DEFAULT_SYNC_INTERVAL;
+    private String maskConfig;
+    private boolean maskDirty;
+    private boolean maskFlushScheduled;
+    private String appliedConfig;
+    private boolean clientStale;
+    private boolean batched;
+    private boolean maskValidation = true;
+    private boolean initRetried;
 
-    public enum MaskType {LAZY, EAGER}
+    /**
+     * When the value is sent to the server: on lost focus ({@code LAZY}), on every keystroke ({@code EAGER}),
+     * after typing pauses for the sync interval ({@code DEBOUNCED}) or at most once per sync interval
+     * ({@code THROTTLED}).
+     */
+    public enum MaskType {LAZY, EAGER, DEBOUNCED, THROTTLED}
 
     public enum MaskFormat {SWING, INPUTMASK}
 
+    /**
+     * Inputmask distribution loaded by the client on the first field attach.
+     * {@code CORE} skips the extensions, i.e. the {@code A & #} definitions and the numeric and date aliases.
+     * To load the library with the application bundle instead, add
+     * {@code @JsModule("inputmask/dist/inputmask.js")} to a layout.
+     */
+    public enum InputmaskBuild {FULL, CORE}
+
+    /**
+     * Masked and unmasked value of a field as shown in the browser, see {@link #harvestValues(Collection, Duration)}.
+     * Both are {@code null} if the mask is not initialized yet.
+     */
+    public static final class Value implements Serializable {
+        private final String masked;
+        private final String unmasked;
+
+        public Value(String masked, String unmasked) {
+            this.masked = masked;
+            this.unmasked = unmasked;
+        }
+
+        public String getMasked() {
+            return masked;
+        }
+
+        public String getUnmasked() {
+            return unmasked;
+        }
+
+        @Override
+        public String toString() {
+            return masked;
+        }
+    }
+
     /*
      * Default constructor will recognize InputMask.js style
      * */
@@ -51,35 +113,173 @@ public class MaskedTextField extends TextField {
     }
 
     public MaskedTextField(String mask, String allowedChars, boolean containsLiteral, String placeholder, MaskType maskType, MaskFormat format) {
-        this.allowedChars = allowedChars;
-        this.mask = mask;
-        this.containsLiteral = containsLiteral;
-        this.placeholder = placeholder;
-        this.maskType = maskType;
-        this.format = format;
+        this(MaskSpec.of(mask, allowedChars, placeholder, format), containsLiteral, maskType);
     }
 
-    @Override
-    public void setId(String id) {
-        super.setId(id);
+    /**
+     * @param spec mask shared with other fields, see {@link MaskSpec}
+     */
+    public MaskedTextField(MaskSpec spec, boolean containsLiteral, MaskType maskType) {
+        if (spec == null)
+            throw new NullPointerException("Mask spec should not be null");
+        this.spec = spec;
+        this.containsLiteral = containsLiteral;
+        this.maskType = maskType;
         build();
-        if (inputTextChangeListener == null)
-            addTextChangeListener(l -> valueUpdater(), maskType);
+        addTextChangeListener(this::valueUpdater, maskType);
+        getElement().addPropertyChangeListener("maskComplete", "mask-state-changed", event -> validate());
+        getElement().addPropertyChangeListener("selectedMask", "mask-selected", event -> {
+        });
+        addDetachListener(event -> clientStale = true);
+        addAttachListener(event -> onAttach());
+        getElement().addEventListener("mask-init-failed", event -> onInitFailed());
     }
 
     public void valueUpdater() {
         if (containsLiteral)
-            getMaskedValuePromise().then(String.class, value -> setValue(value));
+            getMaskedValuePromise().then(String.class, this::setValueFromClient);
         else
-            getUnmaskedValuePromise().then(String.class, value -> setValue(value));
+            getUnmaskedValuePromise().then(String.class, this::setValueFromClient);
+    }
+
+    /**
+     * Derives masked or unmasked value from the raw input value locally, without a browser round trip.
+     * Asks the browser instead if the server does not support the mask.
+     *
+     * @param inputValue value of the inner input element
+     */
+    private void valueUpdater(String inputValue) {
+        MaskEngine engine = getMaskEngine();
+        if (!engine.isSupported()) {
+            valueUpdater();
+            return;
+        }
+        setValueFromClient(containsLiteral ? engine.mask(inputValue) : engine.unmask(inputValue));
+    }
+
+    /**
+     * Takes the value from the event data, so the value is updated in the same request that delivered the event.
+     * Before the mask is active on the client, the value is derived from the raw input value on the server.
+     */
+    private void valueUpdater(DomEvent event) {
+        metrics.valueEvent(this, maskType);
+        JsonObject data = event.getEventData();
+        String key = containsLiteral ? MASKED_VALUE : UNMASKED_VALUE;
+        if (isString(data, key))
+            setValueFromClient(data.getString(key));
+        else if (isString(data, INPUT_VALUE))
+            valueUpdater(data.getString(INPUT_VALUE));
+        else
+            valueUpdater();
+    }
+
+    private static boolean isString(JsonObject data, String key) {
+        return data.hasKey(key) && data.get(key).getType() == JsonType.STRING;
+    }
+
+    /**
+     * Updates the value the browser already shows. The property is stored without marking it dirty,
+     * so it is not echoed back to the client, and the value change event reports {@code isFromClient()}.
+     */
+    private void setValueFromClient(String value) {
+        if (value == null)
+            return;
+        getElement().getNode().getFeature(ElementPropertyMap.class).setProperty("value", value, false);
+    }
+
+    /**
+     * @return server side engine for the current mask, shared by all fields with the same {@link MaskSpec}
+     */
+    public MaskEngine getMaskEngine() {
+        if (maskCandidates != null) {
+            int selected = getSelectedMaskIndex();
+            if (selected >= 0 && selected < maskCandidates.length)
+                return candidateSpec(selected).getEngine();
+        }
+        return spec.getEngine();
     }
 
     public PendingJavaScriptResult getUnmaskedValuePromise() {
-        return Util.getJavaScriptReturn(getElement().getNode(),"document.getElementById('" + this.getId().get() + "').shadowRoot.querySelector('input').inputmask.unmaskedvalue()");
+        return timed(Util.getJavaScriptReturn(getElement().getNode(),
+                "window.MaskedTextFieldConnector.unmaskedValue($0)", getElement()), false);
     }
 
     public PendingJavaScriptResult getMaskedValuePromise() {
-        return Util.getJavaScriptReturn(getElement().getNode(),"document.getElementById('" + this.getId().get() + "').shadowRoot.querySelector('input').inputmask._valueGet()");
+        return timed(Util.getJavaScriptReturn(getElement().getNode(),
+                "window.MaskedTextFieldConnector.maskedValue($0)", getElement()), true);
+    }
+
+    /**
+     * For an attached field the future completes with the session lock held, also on timeout,
+     * so its callbacks may update the UI. Do not block on it while holding the lock, it can not complete then.
+     *
+     * @param timeout {@code null} to wait without a limit
+     * @return unmasked value, completes exceptionally with {@link java.util.concurrent.TimeoutException}
+     * if the browser does not answer in time
+     */
+    public CompletableFuture<String> getUnmaskedValueAsync(Duration timeout) {
+        PendingJavaScriptResult pending = getUnmaskedValuePromise();
+        return Util.withTimeout(pending.toCompletableFuture(String.class), pending, getUI().orElse(null), timeout);
+    }
+
+    /**
+     * Completes like {@link #getUnmaskedValueAsync(Duration)}.
+     *
+     * @param timeout {@code null} to wait without a limit
+     * @return masked value, completes exceptionally with {@link java.util.concurrent.TimeoutException}
+     * if the browser does not answer in time
+     */
+    public CompletableFuture<String> getMaskedValueAsync(Duration timeout) {
+        PendingJavaScriptResult pending = getMaskedValuePromise();
+        return Util.withTimeout(pending.toCompletableFuture(String.class), pending, getUI().orElse(null), timeout);
+    }
+
+    /**
+     * Reads masked and unmasked values of all given fields with one client round trip per UI,
+     * e.g. on form submit. Detached fields are left out of the result.
+     * With fields of several UIs, the future completes with the lock of the session whose UI answers last.
+     * Do not block on it while holding a session lock.
+     *
+     * @param timeout {@code null} to wait without a limit
+     * @return values in the iteration order of the fields
+     */
+    public static CompletableFuture<Map<MaskedTextField, Value>> harvestValues(Collection<MaskedTextField> fields,
+                                                                               Duration timeout) {
+        return ValueHarvest.harvest(fields, timeout);
+    }
+
+    private PendingJavaScriptResult timed(PendingJavaScriptResult result, boolean masked) {
+        return metrics == MaskedTextFieldMetrics.NO_OP ? result : new TimedJavaScriptResult(result, this, masked);
+    }
+
+    public static InputmaskBuild getInputmaskBuild() {
+        return inputmaskBuild;
+    }
+
+    /**
+     * Selects the Inputmask distribution for all fields. Takes effect on pages that have not loaded it yet.
+     */
+    public static void setInputmaskBuild(InputmaskBuild inputmaskBuild) {
+        if (inputmaskBuild == null)
+            throw new NullPointerException("Inputmask build should not be null");
+        MaskedTextField.inputmaskBuild = inputmaskBuild;
+    }
+
+    static String getInputmaskBuildName() {
+        return inputmaskBuild == InputmaskBuild.CORE ? "core" : "full";
+    }
+
+    public static MaskedTextFieldMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Installs a global metrics listener.
+     *
+     * @param metrics listener, {@code null} restores the no-op default
+     */
+    public static void setMetrics(MaskedTextFieldMetrics metrics) {
+        MaskedTextField.metrics = metrics == null ? MaskedTextFieldMetrics.NO_OP : metrics;
     }
 
     @Override
@@ -87,226 +287,84 @@ public class MaskedTextField extends TextField {
         return super.getValue();
     }
 
-    private PendingJavaScriptInvocation getJavaScriptReturn(StateNode node, String expression) {
-        UIInternals.JavaScriptInvocation invocation = new UIInternals.JavaScriptInvocation("return " + expression);
-        PendingJavaScriptInvocation pending = new PendingJavaScriptInvocation(node, invocation);
-        node.runWhenAttached((ui) -> {
-            ui.getInternals().getStateTree().beforeClientResponse(node, (context) -> {
-                if (!pending.isCanceled()) {
-                    context.getUI().getInternals().addJavaScriptInvocation(pending);
-                }
-            });
-        });
-        return pending;
+    /**
+     * Builds Inputmask options as JSON, which is handed to the client connector as is.
+     * <p>
+     * The mask is JSON encoded, so it reaches Inputmask unchanged: an escape is a single backslash in the Java
+     * string, e.g. {@code "\\9"}. The former JS code embedded the mask in a JS string literal, which needed
+     * the backslash doubled, e.g. {@code "\\\\9"}.
+     */
+    public String generateInputmaskConfig(String placeholder, String jsMask, boolean greedy,
+                                          Definition... definitions) {
+        return toInputmaskConfig(placeholder, Json.create(jsMask), greedy, definitions);
     }
 
+    /**
+     * @return {@code Inputmask(options)} JS expression with the options of
+     * {@link #generateInputmaskConfig(String, String, boolean, Definition...)}
+     * @deprecated the connector takes the options as JSON and this method is no longer called,
+     * override {@link #generateInputmaskConfig(String, String, boolean, Definition...)} instead.
+     * Note its different escaping of the mask.
+     */
+    @Deprecated
     public String generateInputmaskJsCode(String placeholder, String jsMask, boolean greedy,
                                           Definition... definitions) {
-        String jsDefinitions = "{\n";
+        return "Inputmask(" + generateInputmaskConfig(placeholder, jsMask, greedy, definitions) + ")";
+    }
+
+    /**
+     * Builds Inputmask multi-mask options as JSON, like {@link #generateInputmaskConfig(String, String, boolean, Definition...)}
+     * does for a single mask.
+     */
+    public String generateCandidatesConfig(String placeholder, JsonArray jsMasks, boolean greedy,
+                                           Definition... definitions) {
+        return toInputmaskConfig(placeholder, jsMasks, greedy, definitions);
+    }
+
+    private static String toInputmaskConfig(String placeholder, JsonValue jsMask, boolean greedy, Definition... definitions) {
+        JsonObject config = Json.createObject();
+        config.put("mask", jsMask);
+        config.put("greedy", greedy);
         if (definitions != null) {
-            for (int i = 0; i < definitions.length; i++) {
-                jsDefinitions += definitions[i].getDefinitionJs();
-                if (i < definitions.length - 1)
-                    jsDefinitions += ",\n";
-            }
+            JsonObject jsDefinitions = Json.createObject();
+            for (Definition definition : definitions)
+                jsDefinitions.put(String.valueOf(definition.letter), definition.toJson());
+            config.put("definitions", jsDefinitions);
         }
-        jsDefinitions += "  \n}";
-        String jsCode = "Inputmask(" +
-                "{\n" +
-                ("    mask: \"" + jsMask + "\"") + ",\n" +
-                ("    greedy: " + greedy + ",\n") +
-                (definitions != null ? "    definitions: " + jsDefinitions + (placeholder != null ? ",\n" : "") : "") +
-                (placeholder != null ? "    placeholder: " + "\"" + placeholder + "\"" + ",\n" : "") +
-                "})";
-
-        return jsCode;
+        if (placeholder != null)
+            config.put("placeholder", placeholder);
+        return config.toJson();
     }
 
 
     protected Definition[] genDefinitionsFromSwingMask(String mask, String allowedChars) {
-        ArrayList<String> regexp = new ArrayList<>();
-        if (StringUtils.isEmpty(allowedChars)) {
-            for (int i = 0; i < mask.length(); i++) {
-                switch (mask.charAt(i)) {
-                    case DIGIT: {
-                        regexp.add("\"[0-9]\"");
-                        break;
-                    }
-                    case ESCAPE_CHAR: {
-                        i += 1;
-                        break;
-                    }
-                    case UPPERCASE: {
-                        regexp.add("\"[A-Z А-Я Ё]\"");
-                        break;
-                    }
-                    case LOWERCASE: {
-                        regexp.add("\"[a-z а-я ё]\"");
-                        break;
-                    }
-                    case ANY_CHAR_AND_NUM: {
-                        regexp.add("\"[a-z A-Z а-я А-Я Ё ё 0-9]\"");
-                        break;
-                    }
-                    case ANYTHING: {
-                        regexp.add(
-                                "\"[a-z A-Z Ёё а-я А-Я 0-9 \\. \\* \\\\ \\! \\@ \\# \\$ \\% \\^ \\& \\( \\) \\- \\+ \\~ \\| \\/ \\_ \\? \\< \\> \\{ \\} \\` \\' \\[ \\] ]\"");
-                        break;
-                    }
-                    case ANY_CHAR: {
-                        regexp.add("\"[a-z A-Z Ёё а-я А-Я]\"");
-                        break;
-                    }
-                    case ANY_HEX: {
-                        regexp.add("\"[0-9 A-E]\"");
-                        break;
-                    }
-                    case DELIMITER: {
-                        regexp.add("\"-\"");
-                        break;
-                    }
-                    default: {
-                        regexp.add("\"[" + mask.charAt(i) + "]\"");
-                    }
-                }
-            }
-        } else {
-            char[] allowedCharsArray = allowedChars.toCharArray();
-            ArrayList<Character> upperChars = new ArrayList();
-            ArrayList<Character> lowerChars = new ArrayList();
-            ArrayList<Character> digits = new ArrayList();
-            ArrayList<Character> others = new ArrayList();
-            ArrayList<Character> hexChars = new ArrayList();
-            for (char c : allowedCharsArray) {
-                if (Character.isLetter(c)) {
-                    if (Character.isUpperCase(c))
-                        upperChars.add(c);
-                    else
-                        lowerChars.add(c);
-                    if (c == 'a' ||
-                            c == 'A' ||
-                            c == 'B' ||
-                            c == 'b' ||
-                            c == 'C' ||
-                            c == 'c' ||
-                            c == 'D' ||
-                            c == 'd' ||
-                            c == 'E' ||
-                            c == 'e' ||
-                            c == 'F' ||
-                            c == 'f')
-                        hexChars.add(c);
-                } else if (Character.isDigit(c))
-                    digits.add(c);
-                else if (!Character.isDigit(c) && !Character.isLetter(c))
-                    others.add(c);
-            }
-            for (int i = 0; i < mask.length(); i++) {
-                switch (mask.charAt(i)) {
-                    case DIGIT: {
-                        regexp.add("\"[" + regexpCharMixer(digits) + "]\"");
-                        break;
-                    }
-                    case ESCAPE_CHAR: {
-                        i += 1;
-                        break;
-                    }
-                    case UPPERCASE: {
-                        regexp.add("\"[" + regexpCharMixer(upperChars) + "]\"");
-                        break;
-                    }
-                    case LOWERCASE: {
-                        regexp.add("\"[" + regexpCharMixer(lowerChars) + "]\"");
-                        break;
-                    }
-                    case ANY_CHAR_AND_NUM: {
-                        regexp.add("\"[" + regexpCharMixer(upperChars, lowerChars, digits) + "]\"");
-                        break;
-                    }
-                    case ANY_CHAR: {
-                        regexp.add("\"[" + regexpCharMixer(upperChars, lowerChars) + "]\"");
-                        break;
-                    }
-                    case ANY_HEX: {
-                        regexp.add("\"[" + regexpCharMixer(digits, hexChars) + "]\"");
-                        break;
-                    }
-                    case ANYTHING: {
-                        regexp.add("\"[" + regexpCharMixer(upperChars, lowerChars, digits, others) + "]\"");
-                        break;
-                    }
-                    case DELIMITER: {
-                        regexp.add("\"" + regexpCharMixer(
-                                (ArrayList) others.stream().filter(c -> c == '-').collect(Collectors.toList())) + "\"");
-                        break;
-                    }
-                    default: {
-                        regexp.add("\"[" + mask.charAt(i) + "]\"");
-                    }
-                }
-            }
-        }
-        ArrayList<Definition> definitions = new ArrayList<>();
-        mask = StringUtils.remove(mask, '-');
-        int j = 0;
-        for (int i = 0; i < mask.length(); i++) {
-            if (mask.charAt(i) == ESCAPE_CHAR) {
-                if (i == mask.length() - 2)
-                    break;
-                i += 2;
-            }
-            definitions.add(new Definition(mask.charAt(i), regexp.get(j), (mask.charAt(i) == UPPERCASE ? "upper" : mask.charAt(i) == LOWERCASE ? "lower" : null), null));
-            j++;
-        }
-        Definition[] defsArray = new Definition[definitions.size()];
-        for (int i = 0; i < definitions.size(); i++) {
-            defsArray[i] = definitions.get(i);
-        }
-        return defsArray;
-    }
-
-
-    protected String regexpCharMixer(ArrayList<Character>... chars) {
-        final String[] s = {""};
-        if (chars != null) {
-            for (ArrayList<Character> a : chars) {
-                a.forEach(c ->
-                {
-                    if (c == '.' ||
-                            c == '*' ||
-                            c == '\\' ||
-                            c == '!' ||
-                            c == '@' ||
-                            c == '#' ||
-                            c == '$' ||
-                            c == '%' ||
-                            c == '^' ||
-                            c == '&' ||
-                            c == '(' ||
-                            c == ')' ||
-                            c == '-' ||
-                            c == '+' ||
-                            c == '~' ||
-                            c == '|' ||
-                            c == '/' ||
-                            c == '_' ||
-                            c == '?' ||
-                            c == '<' ||
-                            c == '>' ||
-                            c == '{' ||
-                            c == '}' ||
-                            c == '`' ||
-                            c == ':' ||
-                            c == '\'' ||
-                            c == '[' ||
-                            c == ']')
-                        s[0] += "\\";
-                    s[0] += c;
-                });
+        return genDefinitions(CompiledMask.compile(mask, allowedChars, MaskFormat.SWING));
+    }
 
-            }
+    /**
+     * One definition per distinct slot symbol of the compiled mask.
+     */
+    protected Definition[] genDefinitions(CompiledMask compiledMask) {
+        return definitions(compiledMask);
+    }
+
+    private static Definition[] definitions(CompiledMask compiledMask) {
+        Definition[] definitions = new Definition[compiledMask.length()];
+        int count = 0;
+        for (int i = 0; i < compiledMask.length(); i++) {
+            if (compiledMask.isLiteral(i))
+                continue;
+            char symbol = compiledMask.getSymbol(i);
+            boolean defined = false;
+            for (int j = 0; j < count && !defined; j++)
+                defined = definitions[j].letter == symbol;
+            if (defined)
+                continue;
+            byte casing = compiledMask.getCasing(i);
+            definitions[count++] = new Definition(symbol, compiledMask.getCharClass(i).toRegexp(),
+                    casing == CompiledMask.CASING_UPPER ? "upper" : casing == CompiledMask.CASING_LOWER ? "lower" : null, null);
         }
-        return s[0];
+        return Arrays.copyOf(definitions, count);
     }
 
     /**
@@ -316,13 +374,19 @@ public class MaskedTextField extends TextField {
      * @see javax.swing.text.MaskFormatter
      */
     public void setMask(String mask) {
-        this.mask = mask;
+        maskAlias = null;
+        maskCandidates = null;
+        maskOptions = null;
+        spec = spec.withMask(mask);
         build();
     }
 
     public void setSwingMask(String mask) {
-        this.mask = mask;
-        applyNewSwingMask(mask, placeholder, allowedChars);
+        maskAlias = null;
+        maskCandidates = null;
+        maskOptions = null;
+        spec = MaskSpec.of(mask, spec.getAllowedChars(), spec.getPlaceholder(), MaskFormat.SWING);
+        applyNewSwingMask(mask, spec.getPlaceholder(), spec.getAllowedChars());
     }
 
     /**
@@ -332,7 +396,10 @@ public class MaskedTextField extends TextField {
      * @param mask маска
      */
     public void setInputMask(String mask, MaskType maskType) {
-        this.mask = mask;
+        maskAlias = null;
+        maskCandidates = null;
+        maskOptions = null;
+        spec = MaskSpec.of(mask, spec.getAllowedChars(), spec.getPlaceholder(), MaskFormat.INPUTMASK);
         this.maskType = maskType;
         applyNewMask(mask);
     }
@@ -344,8 +411,11 @@ public class MaskedTextField extends TextField {
      * @param allowedChars A list of acceptable characters.
      */
     public final void setAllowedChars(String allowedChars) {
-        this.allowedChars = allowedChars;
-        applyNewSwingMask(mask, placeholder, allowedChars);
+        maskAlias = null;
+        maskCandidates = null;
+        maskOptions = null;
+        spec = spec.withAllowedChars(allowedChars);
+        applyNewSwingMask(spec.getMask(), spec.getPlaceholder(), allowedChars);
     }
 
 
@@ -357,136 +427,211 @@ public class MaskedTextField extends TextField {
 
 
     public void applyNewSwingMask(String mask, String placeholder, String allowedChars) {
-        applyMask(generateInputmaskJsCode(placeholder, StringUtils.remove(mask, '\''), false,
-                genDefinitionsFromSwingMask(mask, allowedChars)));
+        applyMask(MaskConfigCache.get(getClass(), mask, allowedChars, placeholder, MaskFormat.SWING, false, () -> {
+            CompiledMask compiledMask = CompiledMask.compile(mask, allowedChars, MaskFormat.SWING);
+            return generateInputmaskConfig(placeholder, compiledMask.toInputmaskMask(), false, genDefinitions(compiledMask));
+        }));
     }
 
     public void applyNewMask(String mask) {
-        applyMask(generateInputmaskJsCode("_", mask, false));
+        applyMask(MaskConfigCache.get(getClass(), mask, null, "_", MaskFormat.INPUTMASK, false,
+                () -> generateInputmaskConfig("_", mask, false)));
+    }
+
+    /**
+     * Inputmask options of the spec, generated like {@link #build()} does, with the generators of this class.
+     */
+    String inputmaskConfig(MaskSpec spec) {
+        String mask = spec.getMask();
+        String placeholder = spec.getPlaceholder();
+        if (spec.getFormat() == MaskFormat.SWING) {
+            String swingPlaceholder = StringUtils.isEmpty(placeholder) ? "_" : placeholder;
+            return MaskConfigCache.get(getClass(), mask, spec.getAllowedChars(), swingPlaceholder, MaskFormat.SWING, false, () -> {
+                CompiledMask compiledMask = spec.getCompiledMask();
+                return generateInputmaskConfig(swingPlaceholder, compiledMask.toInputmaskMask(), false, genDefinitions(compiledMask));
+            });
+        }
+        String inputmaskPlaceholder = placeholder == null ? "_" : placeholder;
+        return MaskConfigCache.get(getClass(), mask, null, inputmaskPlaceholder, MaskFormat.INPUTMASK, false,
+                () -> generateInputmaskConfig(inputmaskPlaceholder, mask, false));
+    }
+
+    /**
+     * Inputmask multi-mask options of the candidates. SWING candidates are compiled and their definitions merged,
+     * INPUTMASK candidates are sent as is, like a single INPUTMASK mask.
+     */
+    private String candidatesConfig() {
+        String[] masks = maskCandidates;
+        String placeholder = spec.getPlaceholder();
+        MaskFormat format = spec.getFormat();
+        boolean swing = format == MaskFormat.SWING;
+        String configPlaceholder = swing ? StringUtils.isEmpty(placeholder) ? "_" : placeholder
+                : placeholder == null ? "_" : placeholder;
+        String configAllowedChars = swing ? spec.getAllowedChars() : null;
+        return MaskConfigCache.get(getClass(), Arrays.asList(masks), configAllowedChars,
+                configPlaceholder, format, false, () -> {
+            JsonArray jsMasks = Json.createArray();
+            Map<Character, Definition> definitions = new LinkedHashMap<>();
+            for (String mask : masks) {
+                if (!swing) {
+                    jsMasks.set(jsMasks.length(), mask);
+                    continue;
+                }
+                CompiledMask compiledMask = MaskSpec.of(mask, configAllowedChars, placeholder, format).getCompiledMask();
+                jsMasks.set(jsMasks.length(), compiledMask.toInputmaskMask());
+                for (Definition definition : genDefinitions(compiledMask))
+                    definitions.putIfAbsent(definition.letter, definition);
+            }
+            return generateCandidatesConfig(configPlaceholder, jsMasks, false,
+                    swing ? definitions.values().toArray(new Definition[0]) : null);
+        });
     }
 
     protected void build() {
-        String inputmask = null;
-        switch (format) {
+        if (maskAlias != null) {
+            JsonObject config = Json.createObject();
+            config.put("alias", maskAlias);
+            applyMask(config.toJson());
+            return;
+        }
+        if (maskOptions != null) {
+            applyMask(maskOptions);
+            return;
+        }
+        if (maskCandidates != null) {
+            applyMask(candidatesConfig());
+            return;
+        }
+        String mask = spec.getMask();
+        String placeholder = spec.getPlaceholder();
+        switch (spec.getFormat()) {
             case SWING:
-                inputmask = generateInputmaskJsCode(StringUtils.isEmpty(placeholder) ? "_" : placeholder, StringUtils.remove(mask, '\''), false,
-                        genDefinitionsFromSwingMask(mask, allowedChars));
+                applyNewSwingMask(mask, StringUtils.isEmpty(placeholder) ? "_" : placeholder, spec.getAllowedChars());
                 break;
             default:
-                inputmask = generateInputmaskJsCode(placeholder == null ? "_" : placeholder, mask, false);
+                String inputmaskPlaceholder = placeholder == null ? "_" : placeholder;
+                applyMask(MaskConfigCache.get(getClass(), mask, null, inputmaskPlaceholder, MaskFormat.INPUTMASK, false,
+                        () -> generateInputmaskConfig(inputmaskPlaceholder, mask, false)));
                 break;
         }
-        ;
-        applyMask(inputmask);
-    }
-
-    private void applyMask(String inputmask) {
-        Util.getJavaScriptInvoke(getElement().getNode(),
-                "let textfield = document.getElementById('" + this.getId().get() + "')\n" +
-                        "let mask = " + inputmask + ";\n" +
-                        "function setmask(element, mask) {\n" +
-                        "\treturn new Promise((result)=> {\n" +
-                        "\t\tmask.mask(element);\n" +
-                        "\t} )\t\n" +
-                        "}\n" +
-                        "function waitForInput() {\n" +
-                        "\treturn new Promise((result)=> {\n" +
-                        "\t\twhile (!textfield) {\n" +
-                        "\t\t\tsleep(100);\n" +
-                        "\t\t}\n" +
-                        "\t\twhile (!textfield.shadowRoot.querySelector('input')) {\n" +
-                        "\t\t\tsleep(100);\n" +
-                        "\t\t}\n" +
-                        "\t\t\treturn result(textfield.shadowRoot.querySelector('input'));\n" +
-                        "\t} )\t\n" +
-                        "}\n" +
-                        "\n" +
-                        "function sleep(ms) {\n" +
-                        "  return new Promise(resolve => setTimeout(resolve, ms));\n" +
-                        "}\n" +
-                        "\n" +
-                        "function setCaretPosition(elem, caretPos) {\n" +
-                        "    \n" +
-                        "    if(elem != null) {\n" +
-                        "        if(elem.createTextRange) {\n" +
-                        "            var range = elem.createTextRange();\n" +
-                        "            range.move('character', caretPos);\n" +
-                        "            range.select();\n" +
-                        "        }\n" +
-                        "        else {\n" +
-                        "            if(elem.selectionStart) {\n" +
-                        "                elem.focus();\n" +
-                        "                elem.setSelectionRange(caretPos, caretPos);\n" +
-                        "            }\n" +
-                        "            else\n" +
-                        "                elem.focus();\n" +
-                        "        }\n" +
-                        "    }\n" +
-                        "}\n" +
-                        "waitForInput().then((result)=>{\n" +
-                        "\tlet oldValue;\n" +
-                        "\tsetmask(result, mask);\n" +
-                        "\tif (typeof result.inputmask.caretPos === 'undefined') {\n" +
-                        "\t\t\tsetCaretPosition(result, 0);\n" +
-                        "\t}\n" +
-                        "\telse{\n" +
-                        "\t\tsetCaretPosition(result, result.inputmask.caretPos.end);\n" +
-                        "\t}\n" +
-                        "\tresult.oninput = (e)=> {\n" +
-                        "\t\tif (typeof result.inputmask.caretPos === 'undefined') {\n" +
-                        "\t\t\tsetCaretPosition(result, 0);\n" +
-                        "\t\t}\n" +
-                        "\t\telse{\n" +
-                        "\t\t\tsetCaretPosition(result, result.inputmask.caretPos.begin);\n" +
-                        "\t\t}\n" +
-                        "\t\tif (result.inputmask.unmaskedvalue() !== oldValue) {\n" +
-                        "\t\t\toldValue = result.inputmask.unmaskedvalue();\n" +
-                        "\t\t\ttextfield.dispatchEvent(new Event('input1'));\n" +
-                        "\t\t}\n" +
-                        "\t}\n" +
-                        "\tresult.onchange = (e)=> {\n" +
-                        "\t\ttextfield.dispatchEvent(new Event('change1'));\n" +
-                        "\t}\n" +
-                        "\tresult.onfocus = (e)=> {\n" +
-                        "\t\tif (typeof result.inputmask.caretPos === 'undefined') {\n" +
-                        "\t\t\tsetCaretPosition(result, 0);\n" +
-                        "\t\t}\n" +
-                        "\t\telse{\n" +
-                        "\t\t\tsetCaretPosition(result, result.inputmask.caretPos.begin);\n" +
-                        "\t\t}\n" +
-                        "\t}\n" +
-                        "\tresult.onkeypress = (e)=> {\n" +
-                        "\t\tif (typeof result.inputmask.caretPos === 'undefined') {\n" +
-                        "\t\t\tsetCaretPosition(result, 0);\n" +
-                        "\t\t}\n" +
-                        "\t\telse{\n" +
-                        "\t\t\tsetCaretPosition(result, result.inputmask.caretPos.begin);\n" +
-                        "\t\t}\n" +
-                        "\t}\n" +
-                        "\tresult.onkeyup = (e)=> {\n" +
-                        "\t \tlet key = e;\n" +
-                        "    \tif(key.code == 'Backspace'){\n" +
-                        "\t\t\tif (typeof result.inputmask.caretPos === 'undefined') {\n" +
-                        "\t\t\t\tsetCaretPosition(result, 0);\n" +
-                        "\t\t\t}\n" +
-                        "\t\t\telse{\n" +
-                        "\t\t\t\tsetCaretPosition(result, result.inputmask.caretPos.begin);\n" +
-                        "\t\t\t}\n" +
-                        "\t\t}\n" +
-                        "\t}\n" +
-                        "})\n"
-                    );
-    }
-
-    /**
-     * Listener triggers on lost focus
+    }
+
+    /**
+     * Marks the mask dirty, the latest config is sent once from {@code beforeClientResponse},
+     * no matter how many setters ran in the round trip.
+     */
+    private void applyMask(String config) {
+        maskConfig = config;
+        maskDirty = clientStale || !config.equals(appliedConfig);
+        if (maskDirty)
+            scheduleFlush();
+    }
+
+    private void scheduleFlush() {
+        if (maskFlushScheduled)
+            return;
+        maskFlushScheduled = true;
+        getElement().getNode().runWhenAttached(ui -> ui.beforeClientResponse(this, this::flushMask));
+    }
+
+    /**
+     * The element may be recreated on the client while detached, the mask is restored on attach
+     * by its key in the config cache of the page, without sending the config again.
+     */
+    private void onAttach() {
+        initRetried = false;
+        if (clientStale && maskConfig != null)
+            maskDirty = true;
+        if (maskDirty) {
+            maskFlushScheduled = false;
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * The client could not find the input of the element, e.g. it was removed from the page before rendering.
+     * The mask is sent again in the next round trip, the page still has its config. Retried once per attach,
+     * so an element that stays off the page does not cause a request loop.
+     */
+    private void onInitFailed() {
+        if (initRetried || maskConfig == null)
+            return;
+        initRetried = true;
+        clientStale = true;
+        applyMask(maskConfig);
+    }
+
+    private void flushMask(ExecutionContext context) {
+        maskFlushScheduled = false;
+        if (!maskDirty || batched)
+            return;
+        maskDirty = false;
+        UI ui = context.getUI();
+        if (maskAlias != null)
+            MaskRegistry.push(ui, maskAlias, this);
+        String config = maskConfig;
+        appliedConfig = config;
+        clientStale = false;
+        // the config cache lives as long as the page, a refreshed page gets a new UI
+        Integer key = ClientMaskConfigs.find(ui, config);
+        if (key != null) {
+            Util.addJavaScriptInvoke(context, getElement().getNode(),
+                    "window.MaskedTextFieldConnector.restore($0, $1, $2)", getElement(), key, getInputmaskBuildName());
+            return;
+        }
+        key = ClientMaskConfigs.register(ui, config);
+        metrics.maskApplied(this, config.length());
+        Util.addJavaScriptInvoke(context, getElement().getNode(),
+                "window.MaskedTextFieldConnector.init($0, $1, $2, $3)", getElement(), config, getInputmaskBuildName(), key);
+    }
+
+    /**
+     * Applies masks of all given fields with a single client invocation per UI and round trip.
+     * Identical configs are sent once and shared between the fields.
+     *
+     * @param fields fields to initialize, attached now or later
+     */
+    public static void applyAll(Collection<MaskedTextField> fields) {
+        for (MaskedTextField field : fields) {
+            field.batched = true;
+            if (field.maskConfig == null)
+                field.build();
+            field.getElement().getNode().runWhenAttached(ui -> MaskBatch.add(ui, field));
+        }
+    }
+
+    String getMaskConfig() {
+        return maskConfig;
+    }
+
+    void endBatch() {
+        batched = false;
+        maskDirty = false;
+    }
+
+    void markApplied() {
+        appliedConfig = maskConfig;
+        clientStale = false;
+    }
+
+    /**
+     * Listener triggers on lost focus.
+     * Event data contains {@link #MASKED_VALUE} and {@link #UNMASKED_VALUE} of the input, and its raw value.
      */
     public void addTextChangeListener(DomEventListener listener, MaskType maskType) {
         getElement().removeSynchronizedPropertyEvent("input");
         getElement().removeSynchronizedPropertyEvent("change");
         if (inputTextChangeListener != null)
             inputTextChangeListener.remove();
-        inputTextChangeListener = getElement().addEventListener(maskType.equals(MaskType.EAGER) ? "input1" : "change1", listener);
+        textChangeListener = listener;
+        inputTextChangeListener = getElement().addEventListener(maskType.equals(MaskType.LAZY) ? "change1" : "input1", listener);
+        if (maskType.equals(MaskType.DEBOUNCED))
+            inputTextChangeListener.debounce(syncInterval);
+        else if (maskType.equals(MaskType.THROTTLED))
+            inputTextChangeListener.throttle(syncInterval);
+        inputTextChangeListener.addEventData(MASKED_VALUE);
+        inputTextChangeListener.addEventData(UNMASKED_VALUE);
+        inputTextChangeListener.addEventData(INPUT_VALUE);
     }
     public MaskType getMaskType() {
         return maskType;
@@ -495,18 +640,183 @@ public class MaskedTextField extends TextField {
     public void setMaskType(MaskType maskType) {
         this.maskType = maskType;
         build();
-        addTextChangeListener(l -> {
-            valueUpdater();
-        }, maskType);
+        addTextChangeListener(this::valueUpdater, maskType);
+    }
+
+    /**
+     * Reports time-to-mask-active of the field, e.g. to track initialization latency.
+     */
+    public Registration addMaskActiveListener(ComponentEventListener<MaskActiveEvent> listener) {
+        return addListener(MaskActiveEvent.class, listener);
+    }
+
+    /**
+     * Completeness reported by the client, kept in sync without extra requests.
+     * {@code false} until the client reports a complete value.
+     *
+     * @return {@code true} if every required slot of the mask is filled
+     */
+    public boolean isMaskComplete() {
+        return getElement().getProperty("maskComplete", false);
+    }
+
+    public boolean isMaskValidation() {
+        return maskValidation;
+    }
+
+    /**
+     * When enabled, a non-empty value that does not fill the mask marks the field invalid in {@link #validate()},
+     * together with the other validation of the field. The client only reports {@link #isMaskComplete()},
+     * the server sets {@code invalid}. Enabled by default.
+     */
+    public void setMaskValidation(boolean maskValidation) {
+        this.maskValidation = maskValidation;
+        validate();
+    }
+
+    @Override
+    protected void validate() {
+        super.validate();
+        if (!isInvalid() && isMaskValidation() && maskOptions == null && !isEmpty() && !isComplete(getValue()))
+            setInvalid(true);
+    }
+
+    /**
+     * Masks the server does not support, see {@link CompiledMask#isSupported()}, rely on {@link #isMaskComplete()}
+     * as last reported by the client.
+     */
+    private boolean isComplete(String value) {
+        if (maskCandidates == null) {
+            MaskEngine engine = getMaskEngine();
+            return engine.isSupported() ? engine.isComplete(value) : isMaskComplete();
+        }
+        for (int i = 0; i < maskCandidates.length; i++) {
+            MaskEngine engine = candidateSpec(i).getEngine();
+            if (!engine.isSupported())
+                return isMaskComplete();
+            if (engine.isComplete(value))
+                return true;
+        }
+        return false;
+    }
+
+    public int getSyncInterval() {
+        return syncInterval;
+    }
+
+    /**
+     * Interval used by {@link MaskType#DEBOUNCED} and {@link MaskType#THROTTLED}
+     *
+     * @param syncInterval interval in milliseconds
+     */
+    public void setSyncInterval(int syncInterval) {
+        if (syncInterval < 0)
+            throw new IllegalArgumentException("Sync interval should not be negative");
+        this.syncInterval = syncInterval;
+        if (textChangeListener != null)
+            addTextChangeListener(textChangeListener, maskType);
     }
 
     public String getAllowedChars() {
-        return allowedChars;
+        return spec.getAllowedChars();
 
     }
 
     public String getMask() {
-        return mask;
+        return spec.getMask();
+    }
+
+    public MaskFormat getFormat() {
+        return spec.getFormat();
+    }
+
+    public MaskSpec getMaskSpec() {
+        return spec;
+    }
+
+    /**
+     * Replaces mask, allowed chars, placeholder and format at once.
+     */
+    public void setMaskSpec(MaskSpec spec) {
+        if (spec == null)
+            throw new NullPointerException("Mask spec should not be null");
+        this.maskAlias = null;
+        this.maskCandidates = null;
+        this.maskOptions = null;
+        this.spec = spec;
+        build();
+    }
+
+    /**
+     * @return name of the {@link MaskRegistry} mask in use, or {@code null}
+     */
+    public String getMaskAlias() {
+        return maskAlias;
+    }
+
+    /**
+     * Uses a mask registered in {@link MaskRegistry}. The mask is sent once per page,
+     * the field itself sends only the alias name. Other mask setters switch the alias off.
+     */
+    public void setMaskAlias(String name) {
+        this.spec = MaskRegistry.getRequired(name);
+        this.maskAlias = name;
+        this.maskCandidates = null;
+        this.maskOptions = null;
+        build();
+    }
+
+    /**
+     * Uses Inputmask options as is, e.g. the {@code numeric} aliases. The server side engine and mask validation
+     * do not apply to them, other mask setters switch them off.
+     */
+    public void setInputmaskOptions(JsonObject options) {
+        if (options == null)
+            throw new NullPointerException("Inputmask options should not be null");
+        maskAlias = null;
+        maskCandidates = null;
+        maskOptions = options.toJson();
+        build();
+    }
+
+    /**
+     * @return candidate masks, empty if the field has a single mask
+     */
+    public List<String> getMaskCandidates() {
+        return maskCandidates == null ? Collections.emptyList() : Collections.unmodifiableList(Arrays.asList(maskCandidates));
+    }
+
+    /**
+     * Sends all candidate masks once, in the current format. The client switches between them while the user types
+     * and reports the choice with {@link MaskSelectedEvent}. Placeholder and allowed chars apply to every candidate,
+     * other mask setters switch candidates off.
+     *
+     * @param masks candidates in order of preference, e.g. phone numbers of different countries
+     */
+    public void setMaskCandidates(String... masks) {
+        if (masks == null || masks.length == 0)
+            throw new IllegalArgumentException("At least one candidate mask is required");
+        maskAlias = null;
+        maskOptions = null;
+        maskCandidates = masks.clone();
+        spec = spec.withMask(masks[0]);
+        getElement().setProperty("selectedMask", -1);
+        build();
+    }
+
+    /**
+     * @return index of the candidate the value completes, as reported by the client, {@code -1} if none
+     */
+    public int getSelectedMaskIndex() {
+        return getElement().getProperty("selectedMask", -1);
+    }
+
+    public Registration addMaskSelectedListener(ComponentEventListener<MaskSelectedEvent> listener) {
+        return addListener(MaskSelectedEvent.class, listener);
+    }
+
+    private MaskSpec candidateSpec(int index) {
+        return spec.withMask(maskCandidates[index]);
     }
 
     public boolean isContainsLiteral() {
@@ -519,15 +829,16 @@ public class MaskedTextField extends TextField {
     }
 
     public String getPlaceholder() {
-        return placeholder;
+        return spec.getPlaceholder();
     }
 
     public void setPlaceholder(String placeholder) {
-        this.placeholder = placeholder;
+        maskAlias = null;
+        spec = spec.withPlaceholder(placeholder);
         build();
     }
 
-    private static class Definition {
+    static class Definition implements Serializable {
         char letter;
         String validator;
         String casing;
@@ -542,13 +853,14 @@ public class MaskedTextField extends TextField {
             this.definitionSymbol = definitionSymbol;
         }
 
-        String getDefinitionJs() {
-            return
-                    "     \"" + letter + "\": {\n" +
-                            "       validator: " + validator + (casing != null || definitionSymbol != null ? ",\n" : "\n") +
-                            (casing != null ? "       casing: " + "\"" + casing + "\"" + (definitionSymbol != null ? "," : "") + " \n" : "") +
-                            (definitionSymbol != null ? "       definitionSymbol: " + definitionSymbol : "") +
-                            "     }";
+        JsonObject toJson() {
+            JsonObject definition = Json.createObject();
+            definition.put("validator", validator);
+            if (casing != null)
+                definition.put("casing", casing);
+            if (definitionSymbol != null)
+                definition.put("definitionSymbol", definitionSymbol);
+            return definition;
         }
     }
 }
@@ -0,0 +1,47 @@
+package org.vaadin.MaskedTextField;
+
+/**
+ * Listener for the client side costs of {@link MaskedTextField}, e.g. to export them to a monitoring system.
+ * Installed globally with {@link MaskedTextField#setMetrics(MaskedTextFieldMetrics)}, the default does nothing.
+ * <p>
+ * Methods are called from request threads holding the session lock, implementations should be fast and thread-safe.
+ */
+public interface MaskedTextFieldMetrics {
+    MaskedTextFieldMetrics NO_OP = new MaskedTextFieldMetrics() {
+    };
+
+    /**
+     * A mask invocation was queued for a single field.
+     *
+     * @param configLength length of the config sent to the client
+     */
+    default void maskApplied(MaskedTextField field, int configLength) {
+    }
+
+    /**
+     * A batch from {@link MaskedTextField#applyAll(java.util.Collection)} was sent.
+     *
+     * @param fieldCount    fields initialized by the invocation
+     * @param configCount   distinct configs sent
+     * @param configsLength total length of the distinct configs
+     */
+    default void batchApplied(int fieldCount, int configCount, int configsLength) {
+    }
+
+    /**
+     * A value request from {@link MaskedTextField#getMaskedValuePromise()} or
+     * {@link MaskedTextField#getUnmaskedValuePromise()} was resolved.
+     *
+     * @param masked         {@code true} for the masked value
+     * @param durationNanos  time from issuing the request to the resolution
+     * @param failed         {@code true} if the client reported an error
+     */
+    default void valueResolved(MaskedTextField field, boolean masked, long durationNanos, boolean failed) {
+    }
+
+    /**
+     * A value change event was received from the client.
+     */
+    default void valueEvent(MaskedTextField field, MaskedTextField.MaskType maskType) {
+    }
+}
@@ -0,0 +1,102 @@
+package org.vaadin.MaskedTextField;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Headless bulk masking, e.g. for imports. Uses the same mask semantics as {@link MaskedTextField},
+ * does not need a UI and is safe to use from many threads.
+ * <p>
+ * Array methods run in parallel, in the common pool or in the given {@link ForkJoinPool}.
+ * Stream methods keep the mode of the given stream, pass a parallel stream to run them in parallel.
+ * Masked values are cut after the last filled slot, without placeholders.
+ */
+public final class MaskedValues implements Serializable {
+    private final MaskEngine engine;
+
+    private MaskedValues(MaskEngine engine) {
+        this.engine = engine;
+    }
+
+    public static MaskedValues of(String mask, String allowedChars, MaskedTextField.MaskFormat format) {
+        return of(MaskEngine.of(mask, allowedChars, format));
+    }
+
+    /**
+     * @throws IllegalArgumentException if the mask is not supported on the server, see {@link CompiledMask#isSupported()}
+     */
+    public static MaskedValues of(MaskEngine engine) {
+        if (engine == null)
+            throw new NullPointerException("Mask engine should not be null");
+        if (!engine.isSupported())
+            throw new IllegalArgumentException("Mask " + engine.getMask() + " is not supported on the server");
+        return new MaskedValues(engine);
+    }
+
+    public MaskEngine getEngine() {
+        return engine;
+    }
+
+    public String format(String value) {
+        return value == null ? null : engine.mask(value);
+    }
+
+    public String unmask(String value) {
+        return value == null ? null : engine.unmask(value);
+    }
+
+    /**
+     * @return {@code true} if the value fills every required slot of the mask
+     */
+    public boolean validate(String value) {
+        return value != null && engine.isComplete(value);
+    }
+
+    public Stream<String> format(Stream<String> values) {
+        return values.map(this::format);
+    }
+
+    public Stream<String> unmask(Stream<String> values) {
+        return values.map(this::unmask);
+    }
+
+    public Stream<Boolean> validate(Stream<String> values) {
+        return values.map(this::validate);
+    }
+
+    /**
+     * @return new array with formatted values, {@code null} elements stay {@code null}
+     */
+    public String[] format(String[] values) {
+        String[] result = new String[values.length];
+        Arrays.parallelSetAll(result, i -> format(values[i]));
+        return result;
+    }
+
+    public String[] unmask(String[] values) {
+        String[] result = new String[values.length];
+        Arrays.parallelSetAll(result, i -> unmask(values[i]));
+        return result;
+    }
+
+    public boolean[] validate(String[] values) {
+        boolean[] result = new boolean[values.length];
+        IntStream.range(0, values.length).parallel().forEach(i -> result[i] = validate(values[i]));
+        return result;
+    }
+
+    public String[] format(String[] values, ForkJoinPool pool) {
+        return pool.submit(() -> format(values)).join();
+    }
+
+    public String[] unmask(String[] values, ForkJoinPool pool) {
+        return pool.submit(() -> unmask(values)).join();
+    }
+
+    public boolean[] validate(String[] values, ForkJoinPool pool) {
+        return pool.submit(() -> validate(values)).join();
+    }
+}
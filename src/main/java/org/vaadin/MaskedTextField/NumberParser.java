@@ -0,0 +1,94 @@
+package org.vaadin.MaskedTextField;
+
+import java.math.BigDecimal;
+
+/**
+ * Reads numbers straight from unmasked values, without intermediate strings or regexps.
+ * Characters other than digits, a leading minus and the radix point, e.g. group separators, are skipped.
+ */
+final class NumberParser {
+    /**
+     * Unscaled values with up to 18 digits fit a long
+     */
+    private static final int LONG_DIGITS = 18;
+
+    private NumberParser() {
+    }
+
+    /**
+     * @return parsed value, {@code null} if there are no digits or the value does not fit a long
+     */
+    static Long parseLong(CharSequence value) {
+        if (value == null)
+            return null;
+        boolean negative = false;
+        boolean digits = false;
+        long result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                int digit = c - '0';
+                // accumulated negatively, so Long.MIN_VALUE fits as well
+                if (result < (Long.MIN_VALUE + digit) / 10)
+                    return null;
+                result = result * 10 - digit;
+                digits = true;
+            } else if (c == '-' && !digits) {
+                negative = true;
+            }
+        }
+        if (!digits || !negative && result == Long.MIN_VALUE)
+            return null;
+        return negative ? result : -result;
+    }
+
+    /**
+     * @param radixPoint decimal separator in addition to {@code .}
+     * @return parsed value, {@code null} if there are no digits
+     */
+    static BigDecimal parseBigDecimal(CharSequence value, char radixPoint) {
+        if (value == null)
+            return null;
+        boolean negative = false;
+        boolean fraction = false;
+        boolean seen = false;
+        int digits = 0;
+        int scale = 0;
+        long unscaled = 0;
+        char[] tail = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                seen = true;
+                if (fraction)
+                    scale++;
+                // leading zeros do not change the unscaled value
+                if (digits == 0 && c == '0')
+                    continue;
+                if (digits < LONG_DIGITS) {
+                    unscaled = unscaled * 10 + (c - '0');
+                } else {
+                    if (tail == null)
+                        tail = new char[value.length()];
+                    tail[digits - LONG_DIGITS] = c;
+                }
+                digits++;
+            } else if ((c == radixPoint || c == '.') && !fraction) {
+                fraction = true;
+            } else if (c == '-' && !seen && !fraction) {
+                negative = true;
+            }
+        }
+        if (!seen)
+            return null;
+        BigDecimal result;
+        if (tail == null) {
+            result = BigDecimal.valueOf(unscaled, scale);
+        } else {
+            int tailLength = digits - LONG_DIGITS;
+            result = BigDecimal.valueOf(unscaled).scaleByPowerOfTen(tailLength)
+                    .add(new BigDecimal(tail, 0, tailLength)).scaleByPowerOfTen(-scale);
+        }
+        return negative ? result.negate() : result;
+    }
+}
@@ -0,0 +1,43 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.page.PendingJavaScriptResult;
+import com.vaadin.flow.function.SerializableConsumer;
+import elemental.json.JsonValue;
+
+/**
+ * Reports the time from issuing a value request to its resolution to {@link MaskedTextFieldMetrics}.
+ */
+class TimedJavaScriptResult implements PendingJavaScriptResult {
+    private final PendingJavaScriptResult delegate;
+    private final MaskedTextField field;
+    private final boolean masked;
+    private final long issued = System.nanoTime();
+
+    TimedJavaScriptResult(PendingJavaScriptResult delegate, MaskedTextField field, boolean masked) {
+        this.delegate = delegate;
+        this.field = field;
+        this.masked = masked;
+    }
+
+    @Override
+    public boolean cancelExecution() {
+        return delegate.cancelExecution();
+    }
+
+    @Override
+    public boolean isSentToBrowser() {
+        return delegate.isSentToBrowser();
+    }
+
+    @Override
+    public void then(SerializableConsumer<JsonValue> resultHandler, SerializableConsumer<String> errorHandler) {
+        delegate.then(value -> {
+            MaskedTextField.getMetrics().valueResolved(field, masked, System.nanoTime() - issued, false);
+            resultHandler.accept(value);
+        }, error -> {
+            MaskedTextField.getMetrics().valueResolved(field, masked, System.nanoTime() - issued, true);
+            if (errorHandler != null)
+                errorHandler.accept(error);
+        });
+    }
+}
@@ -1,12 +1,27 @@
 package org.vaadin.MaskedTextField;
 
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.UIDetachedException;
 import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
 import com.vaadin.flow.component.internal.UIInternals;
+import com.vaadin.flow.component.page.PendingJavaScriptResult;
+import com.vaadin.flow.internal.ExecutionContext;
 import com.vaadin.flow.internal.StateNode;
+import com.vaadin.flow.server.VaadinService;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class Util {
-    public static PendingJavaScriptInvocation getJavaScriptReturn(StateNode node, String expression) {
-        UIInternals.JavaScriptInvocation invocation = new UIInternals.JavaScriptInvocation("return " + expression);
+    private static ScheduledThreadPoolExecutor timeoutScheduler;
+
+    public static PendingJavaScriptInvocation getJavaScriptReturn(StateNode node, String expression, Serializable... parameters) {
+        UIInternals.JavaScriptInvocation invocation = new UIInternals.JavaScriptInvocation("return " + expression, parameters);
         PendingJavaScriptInvocation pending = new PendingJavaScriptInvocation(node, invocation);
         node.runWhenAttached((ui) -> {
             ui.getInternals().getStateTree().beforeClientResponse(node, (context) -> {
@@ -18,8 +33,8 @@ public class Util {
         return pending;
     }
 
-    public static PendingJavaScriptInvocation getJavaScriptInvoke(StateNode node, String expression) {
-        UIInternals.JavaScriptInvocation invocation = new UIInternals.JavaScriptInvocation(expression);
+    public static PendingJavaScriptInvocation getJavaScriptInvoke(StateNode node, String expression, Serializable... parameters) {
+        UIInternals.JavaScriptInvocation invocation = new UIInternals.JavaScriptInvocation(expression, parameters);
         PendingJavaScriptInvocation pending = new PendingJavaScriptInvocation(node, invocation);
         node.runWhenAttached((ui) -> {
             ui.getInternals().getStateTree().beforeClientResponse(node, (context) -> {
@@ -30,4 +45,74 @@ public class Util {
         });
         return pending;
     }
+
+    /**
+     * Adds the invocation to the response right away, for use inside {@code beforeClientResponse}.
+     */
+    public static PendingJavaScriptInvocation addJavaScriptInvoke(ExecutionContext context, StateNode node, String expression, Serializable... parameters) {
+        UIInternals.JavaScriptInvocation invocation = new UIInternals.JavaScriptInvocation(expression, parameters);
+        PendingJavaScriptInvocation pending = new PendingJavaScriptInvocation(node, invocation);
+        context.getUI().getInternals().addJavaScriptInvocation(pending);
+        return pending;
+    }
+
+    /**
+     * Completes the future with {@link TimeoutException} if the browser does not answer in time.
+     * The invocation is cancelled and the future completed in {@link UI#access}, so callbacks run with
+     * the session lock held, like those of an answered invocation. Without a UI, or once it is detached,
+     * the future times out without the lock.
+     *
+     * @param ui      UI that runs the invocation, {@code null} if not attached yet
+     * @param timeout {@code null} to wait without a limit
+     */
+    public static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, PendingJavaScriptResult pending,
+                                                       UI ui, Duration timeout) {
+        if (timeout == null)
+            return future;
+        ScheduledFuture<?> timer = scheduleTimeout(() -> {
+            TimeoutException exception = new TimeoutException("No answer from the browser in " + timeout);
+            if (ui != null) {
+                try {
+                    ui.access(() -> {
+                        if (future.completeExceptionally(exception))
+                            pending.cancelExecution();
+                    });
+                    return;
+                } catch (UIDetachedException e) {
+                    // detached in the meantime, nothing is sent anymore
+                }
+            }
+            future.completeExceptionally(exception);
+        }, timeout);
+        future.whenComplete((result, error) -> timer.cancel(false));
+        return future;
+    }
+
+    /**
+     * Timeouts run on a single daemon thread, which ends when idle and is shut down
+     * together with the Vaadin service that started it.
+     */
+    private static synchronized ScheduledFuture<?> scheduleTimeout(Runnable task, Duration timeout) {
+        if (timeoutScheduler == null) {
+            ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "masked-text-field-timeout");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.setKeepAliveTime(1, TimeUnit.MINUTES);
+            scheduler.allowCoreThreadTimeOut(true);
+            scheduler.setRemoveOnCancelPolicy(true);
+            VaadinService service = VaadinService.getCurrent();
+            if (service != null)
+                service.addServiceDestroyListener(event -> shutdownTimeouts(scheduler));
+            timeoutScheduler = scheduler;
+        }
+        return timeoutScheduler.schedule(task, timeout.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private static synchronized void shutdownTimeouts(ScheduledThreadPoolExecutor scheduler) {
+        scheduler.shutdownNow();
+        if (timeoutScheduler == scheduler)
+            timeoutScheduler = null;
+    }
 }
@@ -0,0 +1,82 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.page.PendingJavaScriptResult;
+import elemental.json.JsonArray;
+import elemental.json.JsonType;
+import elemental.json.JsonValue;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads masked and unmasked values of many fields with one client invocation per UI,
+ * see {@link MaskedTextField#harvestValues(Collection, Duration)}.
+ */
+class ValueHarvest {
+    private ValueHarvest() {
+    }
+
+    static CompletableFuture<Map<MaskedTextField, MaskedTextField.Value>> harvest(Collection<MaskedTextField> fields,
+                                                                                  Duration timeout) {
+        Map<UI, List<MaskedTextField>> fieldsByUi = new LinkedHashMap<>();
+        // filled in field order up front, UIs may answer in any order
+        Map<MaskedTextField, MaskedTextField.Value> values = new LinkedHashMap<>();
+        for (MaskedTextField field : fields) {
+            UI ui = field.getUI().orElse(null);
+            if (ui != null) {
+                fieldsByUi.computeIfAbsent(ui, key -> new ArrayList<>()).add(field);
+                values.put(field, null);
+            }
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(fieldsByUi.size());
+        fieldsByUi.forEach((ui, uiFields) -> futures.add(harvest(ui, uiFields, timeout)
+                .thenAccept(uiValues -> {
+                    synchronized (values) {
+                        values.putAll(uiValues);
+                    }
+                })));
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).thenApply(done -> {
+            synchronized (values) {
+                values.values().removeIf(Objects::isNull);
+                return values;
+            }
+        });
+    }
+
+    private static CompletableFuture<Map<MaskedTextField, MaskedTextField.Value>> harvest(UI ui, List<MaskedTextField> fields,
+                                                                                          Duration timeout) {
+        StringBuilder elements = new StringBuilder();
+        Serializable[] parameters = new Serializable[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0)
+                elements.append(',');
+            elements.append('$').append(i);
+            parameters[i] = fields.get(i).getElement();
+        }
+        PendingJavaScriptResult pending = Util.getJavaScriptReturn(ui.getElement().getNode(),
+                "window.MaskedTextFieldConnector.values([" + elements + "])", parameters);
+        CompletableFuture<Map<MaskedTextField, MaskedTextField.Value>> future = new CompletableFuture<>();
+        pending.then(result -> {
+            Map<MaskedTextField, MaskedTextField.Value> values = new LinkedHashMap<>();
+            JsonArray array = (JsonArray) result;
+            for (int i = 0; i < fields.size() && i < array.length(); i++) {
+                JsonArray value = array.getArray(i);
+                values.put(fields.get(i), new MaskedTextField.Value(string(value.get(0)), string(value.get(1))));
+            }
+            future.complete(values);
+        }, error -> future.completeExceptionally(new IllegalStateException(error)));
+        return Util.withTimeout(future, pending, ui, timeout);
+    }
+
+    private static String string(JsonValue value) {
+        return value == null || value.getType() != JsonType.STRING ? null : value.asString();
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Client side part of MaskedTextField.
+ * Shipped once with the bundle, so the server only sends the mask config of each field.
+ * The inputmask library itself is a separate chunk, loaded when the first field is initialized.
+ */
+(function () {
+    const inputmaskBuilds = {
+        full: () => import('inputmask/dist/inputmask.js'),
+        core: () => import('inputmask/lib/inputmask.js')
+    };
+    const loadedBuilds = {};
+    let aliasesDefined = Promise.resolve();
+    /*
+     * Parsed configs by the key the server refers to them with.
+     */
+    const configs = {};
+
+    function loadInputmask(build) {
+        if (!inputmaskBuilds[build]) {
+            build = 'full';
+        }
+        if (!loadedBuilds[build]) {
+            loadedBuilds[build] = inputmaskBuilds[build]().then(module => module.default || module);
+        }
+        return loadedBuilds[build];
+    }
+
+    /*
+     * The inner input is looked up once and cached on the text field.
+     */
+    function findInput(textfield) {
+        if (!textfield._maskedInput && textfield.shadowRoot) {
+            textfield._maskedInput = textfield.shadowRoot.querySelector('input');
+        }
+        return textfield._maskedInput;
+    }
+
+    /*
+     * Resolves with the result of find as soon as it is not null, checked on mutations of the target.
+     * The document is observed as well, to resolve with null when the text field is removed from the page first.
+     */
+    function observeUntil(textfield, target, find) {
+        const found = find();
+        if (found) {
+            return Promise.resolve(found);
+        }
+        return new Promise(resolve => {
+            const observer = new MutationObserver(() => {
+                const result = find();
+                if (result || !textfield.isConnected) {
+                    observer.disconnect();
+                    resolve(result || null);
+                }
+            });
+            observer.observe(target, {attributes: true, childList: true, subtree: true});
+            observer.observe(textfield.getRootNode(), {childList: true, subtree: true});
+        });
+    }
+
+    /*
+     * Resolves with the inner input as soon as the text field is upgraded and rendered,
+     * without polling the DOM. Vaadin elements have their shadow root once they are defined,
+     * other elements are observed until they render or are removed. Resolves with null in the latter case,
+     * init then reports mask-init-failed and the server sends the mask again.
+     */
+    function waitForInput(textfield) {
+        return customElements.whenDefined(textfield.localName)
+            .then(() => observeUntil(textfield, textfield, () => textfield.shadowRoot))
+            .then((shadowRoot) => shadowRoot && observeUntil(textfield, shadowRoot, () => findInput(textfield)));
+    }
+
+    function setCaretPosition(elem, caretPos) {
+        if (elem != null) {
+            if (elem.createTextRange) {
+                var range = elem.createTextRange();
+                range.move('character', caretPos);
+                range.select();
+            } else {
+                if (elem.selectionStart) {
+                    elem.focus();
+                    elem.setSelectionRange(caretPos, caretPos);
+                } else
+                    elem.focus();
+            }
+        }
+    }
+
+    function restoreCaret(input) {
+        if (typeof input.inputmask.caretPos === 'undefined') {
+            setCaretPosition(input, 0);
+        } else {
+            setCaretPosition(input, input.inputmask.caretPos.begin);
+        }
+    }
+
+    /*
+     * Keeps maskComplete of the text field up to date, the server is notified only when it changes.
+     * An incomplete mask right after init is not a change, the server assumes incomplete until told otherwise.
+     * The server decides whether the field is invalid.
+     */
+    function updateState(textfield, input) {
+        const complete = input.inputmask.isComplete();
+        const previous = textfield.maskComplete;
+        if (complete === previous) {
+            return;
+        }
+        textfield.maskComplete = complete;
+        if (previous !== undefined || complete) {
+            textfield.dispatchEvent(new Event('mask-state-changed'));
+        }
+    }
+
+    /*
+     * For multi-mask options, finds the first candidate the value completes.
+     * The server is notified only when the choice changes.
+     */
+    function selectCandidate(textfield, input, Inputmask, options) {
+        if (!Array.isArray(options.mask)) {
+            return;
+        }
+        const value = input.inputmask.unmaskedvalue();
+        const index = options.mask.findIndex(mask => Inputmask.isValid(value, Object.assign({}, options, {mask: mask})));
+        if (index === textfield.selectedMask) {
+            return;
+        }
+        textfield.selectedMask = index;
+        textfield.dispatchEvent(new CustomEvent('mask-selected', {detail: {index: index}}));
+    }
+
+    /*
+     * Keeps the Inputmask instance of an already masked input and applies only the changed options.
+     * Removed options and another alias need a new instance.
+     */
+    function applyOptions(Inputmask, textfield, input, options) {
+        const current = textfield._maskOptions;
+        if (input.inputmask && current) {
+            const delta = {};
+            let changed = false;
+            let rebuild = Object.keys(current).some(name => !(name in options));
+            Object.keys(options).forEach(name => {
+                if (JSON.stringify(options[name]) !== JSON.stringify(current[name])) {
+                    delta[name] = options[name];
+                    changed = true;
+                    rebuild = rebuild || name === 'alias';
+                }
+            });
+            if (!rebuild) {
+                if (changed) {
+                    input.inputmask.option(delta);
+                }
+                textfield._maskOptions = options;
+                return;
+            }
+        }
+        if (input.inputmask) {
+            input.inputmask.remove();
+        }
+        new Inputmask(options).mask(input);
+        textfield._maskOptions = options;
+    }
+
+    window.MaskedTextFieldConnector = {
+        init: function (textfield, config, build, key) {
+            if (!textfield || !config) {
+                return;
+            }
+            const start = performance.now();
+            const options = typeof config === 'string' ? JSON.parse(config) : config;
+            if (key !== undefined && key !== null) {
+                configs[key] = options;
+            }
+            return Promise.all([loadInputmask(build), waitForInput(textfield), aliasesDefined]).then(([Inputmask, input]) => {
+                if (!input) {
+                    textfield.dispatchEvent(new Event('mask-init-failed'));
+                    return;
+                }
+                let oldValue;
+                if (key !== undefined && key !== null && textfield._maskConfigKey === key
+                    && input.inputmask && textfield._maskOptions === options) {
+                    // the element kept its mask while detached
+                    return;
+                }
+                textfield._maskConfigKey = key;
+                applyOptions(Inputmask, textfield, input, options);
+                if (typeof input.inputmask.caretPos === 'undefined') {
+                    setCaretPosition(input, 0);
+                } else {
+                    setCaretPosition(input, input.inputmask.caretPos.end);
+                }
+                updateState(textfield, input);
+                selectCandidate(textfield, input, Inputmask, options);
+                input.oninput = (e) => {
+                    restoreCaret(input);
+                    updateState(textfield, input);
+                    if (input.inputmask.unmaskedvalue() !== oldValue) {
+                        oldValue = input.inputmask.unmaskedvalue();
+                        selectCandidate(textfield, input, Inputmask, options);
+                        textfield.dispatchEvent(new Event('input1'));
+                    }
+                };
+                input.onchange = (e) => {
+                    textfield.dispatchEvent(new Event('change1'));
+                };
+                input.onfocus = (e) => {
+                    restoreCaret(input);
+                };
+                input.onkeypress = (e) => {
+                    restoreCaret(input);
+                };
+                input.onkeyup = (e) => {
+                    if (e.code == 'Backspace') {
+                        restoreCaret(input);
+                    }
+                };
+                const now = performance.now();
+                textfield.dispatchEvent(new CustomEvent('mask-active', {
+                    detail: {latency: now - start, timestamp: now}
+                }));
+            });
+        },
+
+        /*
+         * Applies a config the page already has, e.g. on reattach, an element that kept its mask is left alone.
+         * The server refers only to keys of the current page.
+         */
+        restore: function (textfield, key, build) {
+            return window.MaskedTextFieldConnector.init(textfield, configs[key], build, key);
+        },
+
+        maskedValue: function (textfield) {
+            const input = findInput(textfield);
+            return input && input.inputmask ? input.inputmask._valueGet() : null;
+        },
+
+        unmaskedValue: function (textfield) {
+            const input = findInput(textfield);
+            return input && input.inputmask ? input.inputmask.unmaskedvalue() : null;
+        },
+
+        /*
+         * Masked and unmasked values of many fields at once, [masked, unmasked] per field.
+         */
+        values: function (textfields) {
+            return textfields.map(textfield => [
+                window.MaskedTextFieldConnector.maskedValue(textfield),
+                window.MaskedTextFieldConnector.unmaskedValue(textfield)
+            ]);
+        },
+
+        /*
+         * Registers named masks of MaskRegistry, fields initialized later refer to them by alias.
+         */
+        defineAliases: function (aliases, build) {
+            aliasesDefined = aliasesDefined
+                .then(() => loadInputmask(build))
+                .then(Inputmask => Inputmask.extendAliases(aliases));
+            return aliasesDefined;
+        },
+
+        /*
+         * Initializes many fields at once. Each distinct config is parsed once and shared.
+         */
+        initAll: function (textfields, configs, configIndexes, build, keys) {
+            const options = configs.map(config => JSON.parse(config));
+            return Promise.all(textfields.map((textfield, i) =>
+                window.MaskedTextFieldConnector.init(textfield, options[configIndexes[i]], build,
+                    keys ? keys[configIndexes[i]] : undefined)));
+        }
+    };
+})();
@@ -0,0 +1,54 @@
+package org.vaadin.MaskedTextField;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompiledMaskTest {
+
+    @Test
+    public void swingTokens() {
+        CompiledMask mask = CompiledMask.compile("'#U-#", null, MaskedTextField.MaskFormat.SWING);
+        Assert.assertEquals(4, mask.length());
+        Assert.assertTrue(mask.isLiteral(0));
+        Assert.assertEquals('#', mask.getSymbol(0));
+        Assert.assertEquals(CompiledMask.CASING_UPPER, mask.getCasing(1));
+        Assert.assertTrue(mask.isLiteral(2));
+        Assert.assertEquals(2, mask.getRequiredSlots());
+        Assert.assertEquals("\\#U\\-#", mask.toInputmaskMask());
+    }
+
+    @Test
+    public void inputmaskOptionalAndRepeat() {
+        CompiledMask mask = CompiledMask.compile("9{3}[a]", null, MaskedTextField.MaskFormat.INPUTMASK);
+        Assert.assertEquals(4, mask.length());
+        Assert.assertEquals(3, mask.getRequiredSlots());
+        Assert.assertTrue(mask.isOptional(3));
+        Assert.assertEquals("9{3}[a]", mask.toInputmaskMask());
+    }
+
+    @Test
+    public void unsupportedInputmaskSyntaxCompilesWithoutTokens() {
+        for (String syntax : new String[]{"9{1,3}", "9{+}", "(99)|(aa)", "{3}", "9{3", "99\\"}) {
+            CompiledMask mask = CompiledMask.compile(syntax, null, MaskedTextField.MaskFormat.INPUTMASK);
+            Assert.assertFalse(syntax, mask.isSupported());
+            Assert.assertEquals(syntax, 0, mask.length());
+        }
+        Assert.assertTrue(CompiledMask.compile("9{3}", null, MaskedTextField.MaskFormat.INPUTMASK).isSupported());
+    }
+
+    @Test
+    public void allowedCharsRestrictSlots() {
+        CompiledMask mask = CompiledMask.compile("#", "12", MaskedTextField.MaskFormat.SWING);
+        Assert.assertTrue(mask.accepts(0, '1'));
+        Assert.assertFalse(mask.accepts(0, '3'));
+        Assert.assertEquals("[12]", mask.getCharClass(0).toRegexp());
+    }
+
+    @Test
+    public void inputmaskIgnoresAllowedChars() {
+        CompiledMask mask = CompiledMask.compile("999", "12", MaskedTextField.MaskFormat.INPUTMASK);
+        Assert.assertNull(mask.getAllowedChars());
+        Assert.assertTrue(mask.accepts(0, '3'));
+        Assert.assertEquals("345", MaskEngine.of(mask, "_").unmask("345"));
+    }
+}
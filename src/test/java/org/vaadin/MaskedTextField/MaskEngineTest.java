@@ -0,0 +1,54 @@
+package org.vaadin.MaskedTextField;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MaskEngineTest {
+    private static final MaskEngine PHONE = MaskEngine.of("8 (###) ###-##-##", null,
+            MaskedTextField.MaskFormat.SWING, "_");
+
+    @Test
+    public void rawValueIsNotConsumedByEqualLiterals() {
+        Assert.assertEquals("8 (800) 555-35-35", PHONE.mask("8005553535"));
+        Assert.assertEquals("8005553535", PHONE.unmask("8005553535"));
+        Assert.assertTrue(PHONE.isComplete("8005553535"));
+
+        MaskEngine plus = MaskEngine.of("+7 (###) ###-##-##", null, MaskedTextField.MaskFormat.SWING, "_");
+        Assert.assertEquals("+7 (701) 234-56-78", plus.mask("7012345678"));
+        Assert.assertTrue(plus.isComplete("7012345678"));
+    }
+
+    @Test
+    public void maskedValueKeepsItsLiterals() {
+        Assert.assertEquals("0055535353", PHONE.unmask("8 (005) 553-53-53"));
+        Assert.assertEquals("8 (005) 553-53-53", PHONE.mask("8 (005) 553-53-53"));
+        Assert.assertEquals("0055", PHONE.unmask("8 (005) 5__-__-__"));
+        Assert.assertFalse(PHONE.isComplete("8 (005) 5__-__-__"));
+    }
+
+    @Test
+    public void partialValues() {
+        MaskEngine engine = MaskEngine.of("###-###", null, MaskedTextField.MaskFormat.SWING);
+        Assert.assertEquals("123-4", engine.mask("1234"));
+        Assert.assertEquals("123-", engine.mask("123"));
+        Assert.assertEquals("", engine.mask(""));
+        Assert.assertEquals("8 (00_) ___-__-__", PHONE.mask("8 (00"));
+    }
+
+    @Test
+    public void casingAndAllowedChars() {
+        MaskEngine upper = MaskEngine.of("UU-##", null, MaskedTextField.MaskFormat.SWING);
+        Assert.assertEquals("AB-12", upper.mask("ab12"));
+
+        MaskEngine allowed = MaskEngine.of("###", "123", MaskedTextField.MaskFormat.SWING);
+        Assert.assertEquals("123", allowed.unmask("1425363"));
+    }
+
+    @Test
+    public void inputmaskOptionalPartsAndRepeats() {
+        MaskEngine engine = MaskEngine.of("99[9]-a{2}", null, MaskedTextField.MaskFormat.INPUTMASK);
+        Assert.assertTrue(engine.isComplete("12ab"));
+        Assert.assertEquals("12ab", engine.unmask("12-ab"));
+        Assert.assertFalse(engine.isComplete("12a"));
+    }
+}
@@ -0,0 +1,94 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.html.Div;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class MaskedTextFieldSerializationTest {
+    private static final int FIELDS = 100;
+    private static final String SHARED_MASK = "+7 (###) ###-##-##";
+
+    @Test
+    public void sharedMaskAndConfigAreWrittenOnce() throws Exception {
+        UI ui = createUi(FIELDS, true);
+        byte[] bytes = serialize(ui);
+        MaskedTextField field = (MaskedTextField) ui.getChildren().findFirst().get().getChildren().findFirst().get();
+        Assert.assertEquals(1, occurrences(bytes, SHARED_MASK));
+        Assert.assertEquals(1, occurrences(bytes, field.getMaskConfig()));
+    }
+
+    @Test
+    public void sharedMaskAddsNoConfigPerField() throws Exception {
+        UI ui = createUi(1, false);
+        MaskedTextField field = (MaskedTextField) ui.getChildren().findFirst().get().getChildren().findFirst().get();
+        int configLength = field.getMaskConfig().length();
+        int sharedPerField = (serialize(createUi(FIELDS, true)).length - serialize(createUi(1, true)).length) / (FIELDS - 1);
+        int distinctPerField = (serialize(createUi(FIELDS, false)).length - serialize(ui).length) / (FIELDS - 1);
+        Assert.assertTrue("Every field with a distinct mask writes its own config, fields with a shared mask should not",
+                distinctPerField - sharedPerField >= configLength);
+    }
+
+    @Test
+    public void specIsSharedAfterDeserialization() throws Exception {
+        UI ui = (UI) deserialize(serialize(createUi(FIELDS, true)));
+        Div form = (Div) ui.getChildren().findFirst().get();
+        MaskedTextField first = (MaskedTextField) form.getChildren().findFirst().get();
+        MaskedTextField last = (MaskedTextField) form.getChildren().skip(FIELDS - 1).findFirst().get();
+
+        MaskSpec spec = MaskSpec.of(SHARED_MASK, null, "_", MaskedTextField.MaskFormat.SWING);
+        Assert.assertSame(spec, first.getMaskSpec());
+        Assert.assertSame(spec, last.getMaskSpec());
+        Assert.assertEquals("123", first.getMaskEngine().unmask("+7 (123"));
+    }
+
+    private static UI createUi(int fields, boolean sharedMask) {
+        UI ui = new UI();
+        Div form = new Div();
+        for (int i = 0; i < fields; i++) {
+            String mask = sharedMask ? SHARED_MASK : "+" + i + " (###) ###-##-##";
+            MaskedTextField field = new MaskedTextField(mask, null, true, "_",
+                    MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+            field.setId("field" + i);
+            form.add(field);
+        }
+        ui.add(form);
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        ui.getInternals().dumpPendingJavaScriptInvocations();
+        return ui;
+    }
+
+    private static int occurrences(byte[] bytes, String string) {
+        byte[] pattern = string.getBytes(StandardCharsets.UTF_8);
+        int count = 0;
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            int j = 0;
+            while (j < pattern.length && bytes[i + j] == pattern[j])
+                j++;
+            if (j == pattern.length)
+                count++;
+        }
+        return count;
+    }
+
+    private static byte[] serialize(Object object) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(object);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return in.readObject();
+        }
+    }
+}
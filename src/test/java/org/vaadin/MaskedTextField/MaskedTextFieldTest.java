@@ -0,0 +1,257 @@
+package org.vaadin.MaskedTextField;
+
+import com.vaadin.flow.component.ComponentUtil;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.internal.PendingJavaScriptInvocation;
+import com.vaadin.flow.dom.DomEvent;
+import com.vaadin.flow.internal.change.MapPutChange;
+import com.vaadin.flow.internal.change.NodeChange;
+import com.vaadin.flow.internal.nodefeature.ElementListenerMap;
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class MaskedTextFieldTest {
+
+    @Test
+    public void settersSendSingleMaskInvocationPerRoundTrip() {
+        UI ui = new UI();
+        MaskedTextField field = new MaskedTextField("###-###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        ui.add(field);
+
+        field.setId("field");
+        field.setPlaceholder("*");
+        field.setContainsLiteral(false);
+        field.setMaskType(MaskedTextField.MaskType.EAGER);
+        field.setMask("##-##");
+        Assert.assertEquals(1, countMaskInvocations(ui));
+
+        Assert.assertEquals(0, countMaskInvocations(ui));
+
+        field.setPlaceholder("_");
+        field.setMask("###");
+        Assert.assertEquals(1, countMaskInvocations(ui));
+    }
+
+    @Test
+    public void fieldsWithSameMaskShareSpecAndEngine() {
+        MaskedTextField first = new MaskedTextField("###-###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        MaskedTextField second = new MaskedTextField(new String("###-###"), null, false, "_",
+                MaskedTextField.MaskType.EAGER, MaskedTextField.MaskFormat.SWING);
+        Assert.assertSame(first.getMaskSpec(), second.getMaskSpec());
+        Assert.assertSame(first.getMaskEngine(), second.getMaskEngine());
+
+        second.setPlaceholder("*");
+        Assert.assertNotSame(first.getMaskSpec(), second.getMaskSpec());
+        Assert.assertEquals("*", second.getPlaceholder());
+        Assert.assertEquals("###-###", second.getMask());
+    }
+
+    @Test
+    public void aliasIsSentOncePerUi() {
+        MaskRegistry.register("test-phone", MaskSpec.of("+7 (###) ###-##-##", null, "_", MaskedTextField.MaskFormat.SWING));
+        try {
+            UI ui = new UI();
+            for (int i = 0; i < 3; i++) {
+                MaskedTextField field = new MaskedTextField("###");
+                field.setMaskAlias("test-phone");
+                ui.add(field);
+            }
+            List<String> expressions = flushExpressions(ui);
+            Assert.assertEquals(1, expressions.stream().filter(e -> e.contains("defineAliases")).count());
+            Assert.assertEquals(3, expressions.stream().filter(MaskedTextFieldTest::isMaskInvocation).count());
+
+            MaskedTextField field = new MaskedTextField("###");
+            field.setMaskAlias("test-phone");
+            ui.add(field);
+            Assert.assertEquals(0, flushExpressions(ui).stream().filter(e -> e.contains("defineAliases")).count());
+        } finally {
+            MaskRegistry.unregister("test-phone");
+        }
+    }
+
+    @Test
+    public void clientValueIsNotEchoed() {
+        UI ui = new UI();
+        MaskedTextField field = new MaskedTextField("###-###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        ui.add(field);
+        flushExpressions(ui);
+        ui.getInternals().getStateTree().collectChanges(change -> {
+        });
+        List<Boolean> fromClient = new ArrayList<>();
+        field.addValueChangeListener(event -> fromClient.add(event.isFromClient()));
+
+        fireTextChange(field, MaskedTextField.MASKED_VALUE, "123-456");
+        Assert.assertEquals("123-456", field.getValue());
+        fireTextChange(field, MaskedTextField.INPUT_VALUE, "654321");
+        Assert.assertEquals("654-321", field.getValue());
+        field.setContainsLiteral(false);
+        fireTextChange(field, MaskedTextField.UNMASKED_VALUE, "111222");
+        Assert.assertEquals("111222", field.getValue());
+
+        Assert.assertEquals(Arrays.asList(true, true, true), fromClient);
+        List<NodeChange> changes = new ArrayList<>();
+        ui.getInternals().getStateTree().collectChanges(changes::add);
+        Assert.assertTrue(changes.stream().noneMatch(change -> change instanceof MapPutChange
+                && "value".equals(((MapPutChange) change).getKey())));
+    }
+
+    @Test
+    public void reattachRestoresMaskByKey() {
+        UI ui = new UI();
+        MaskedTextField field = new MaskedTextField("###-###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        ui.add(field);
+        Assert.assertEquals(1, flushInvocations(ui).stream()
+                .filter(pending -> pending.getInvocation().getExpression().contains("MaskedTextFieldConnector.init("))
+                .count());
+
+        ui.remove(field);
+        ui.add(field);
+        List<PendingJavaScriptInvocation> invocations = flushInvocations(ui);
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertTrue(invocations.get(0).getInvocation().getExpression().contains("MaskedTextFieldConnector.restore("));
+        Assert.assertFalse(invocations.get(0).getInvocation().getParameters().contains(field.getMaskConfig()));
+
+        field.setMaskType(MaskedTextField.MaskType.LAZY);
+        Assert.assertEquals(0, countMaskInvocations(ui));
+
+        MaskedTextField other = new MaskedTextField("###-###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        ui.add(other);
+        invocations = flushInvocations(ui);
+        Assert.assertEquals(1, invocations.size());
+        Assert.assertTrue(invocations.get(0).getInvocation().getExpression().contains("MaskedTextFieldConnector.restore("));
+        Assert.assertFalse(invocations.get(0).getInvocation().getParameters().contains(other.getMaskConfig()));
+    }
+
+    @Test
+    public void overriddenConfigGenerationIsCachedSeparately() {
+        MaskedTextField plain = new MaskedTextField("##-##", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        MaskedTextField custom = new MaskedTextField("##-##", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING) {
+            @Override
+            public String generateInputmaskConfig(String placeholder, String jsMask, boolean greedy,
+                                                  Definition... definitions) {
+                return "{\"mask\":\"custom\"}";
+            }
+        };
+        Assert.assertEquals("{\"mask\":\"custom\"}", custom.getMaskConfig());
+        Assert.assertNotEquals(custom.getMaskConfig(), plain.getMaskConfig());
+    }
+
+    @Test
+    public void overriddenDefinitionsApplyToCandidates() {
+        MaskedTextField plain = new MaskedTextField("##-##", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        MaskedTextField custom = new MaskedTextField("##-##", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING) {
+            @Override
+            protected Definition[] genDefinitions(CompiledMask compiledMask) {
+                return new Definition[0];
+            }
+        };
+        plain.setMaskCandidates("##-##", "###-###");
+        custom.setMaskCandidates("##-##", "###-###");
+        JsonObject plainConfig = Json.parse(plain.getMaskConfig());
+        JsonObject customConfig = Json.parse(custom.getMaskConfig());
+        Assert.assertEquals(1, plainConfig.getObject("definitions").keys().length);
+        Assert.assertEquals(0, customConfig.getObject("definitions").keys().length);
+    }
+
+    @Test
+    public void unsupportedMaskFallsBackToClientCompleteness() {
+        MaskedTextField field = new MaskedTextField("9{1,3}-99", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.INPUTMASK);
+        Assert.assertFalse(field.getMaskEngine().isSupported());
+
+        field.setValue("12-3");
+        Assert.assertEquals("12-3", field.getValue());
+        Assert.assertTrue(field.isInvalid());
+
+        field.getElement().setProperty("maskComplete", true);
+        field.setValue("12-34");
+        Assert.assertFalse(field.isInvalid());
+    }
+
+    @Test
+    public void candidatesAreSentAsOneMultiMaskConfig() {
+        MaskedTextField swing = new MaskedTextField("###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        swing.setMaskCandidates("+7 (###) ###-##-##", "+1 (###) ###-####");
+        JsonObject swingConfig = Json.parse(swing.getMaskConfig());
+        JsonArray swingMasks = swingConfig.getArray("mask");
+        Assert.assertEquals(2, swingMasks.length());
+        Assert.assertEquals("+1 (###) ###-####", swing.getMaskCandidates().get(1));
+
+        MaskedTextField inputmask = new MaskedTextField("999", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.INPUTMASK);
+        inputmask.setMaskCandidates("+9{1,3} (999) 999-9999", "999-9999");
+        JsonObject inputmaskConfig = Json.parse(inputmask.getMaskConfig());
+        JsonArray inputmaskMasks = inputmaskConfig.getArray("mask");
+        Assert.assertEquals("+9{1,3} (999) 999-9999", inputmaskMasks.getString(0));
+        Assert.assertEquals("999-9999", inputmaskMasks.getString(1));
+    }
+
+    @Test
+    public void validationAcceptsAnyCandidateAndEventReportsSelectedMask() {
+        MaskedTextField field = new MaskedTextField("###", null, true, "_",
+                MaskedTextField.MaskType.LAZY, MaskedTextField.MaskFormat.SWING);
+        field.setMaskCandidates("###-###", "##-##");
+        field.setValue("12-34");
+        Assert.assertFalse(field.isInvalid());
+        field.setValue("12-3");
+        Assert.assertTrue(field.isInvalid());
+
+        List<String> selected = new ArrayList<>();
+        field.addMaskSelectedListener(event -> selected.add(event.getMask()));
+        ComponentUtil.fireEvent(field, new MaskSelectedEvent(field, true, 1));
+        ComponentUtil.fireEvent(field, new MaskSelectedEvent(field, true, -1));
+        Assert.assertEquals(Arrays.asList("##-##", null), selected);
+
+        field.getElement().setProperty("selectedMask", 0);
+        Assert.assertEquals("###-###", field.getMaskEngine().getMask());
+    }
+
+    /**
+     * Delivers the change event of a LAZY field like the client does, with a single event data value.
+     */
+    private static void fireTextChange(MaskedTextField field, String key, String value) {
+        JsonObject data = Json.createObject();
+        data.put(key, value);
+        field.getElement().getNode().getFeature(ElementListenerMap.class)
+                .fireEvent(new DomEvent(field.getElement(), "change1", data));
+    }
+
+    private static boolean isMaskInvocation(String expression) {
+        return expression.contains("MaskedTextFieldConnector.init(") || expression.contains("MaskedTextFieldConnector.restore(");
+    }
+
+    private static long countMaskInvocations(UI ui) {
+        return flushExpressions(ui).stream()
+                .filter(MaskedTextFieldTest::isMaskInvocation)
+                .count();
+    }
+
+    private static List<PendingJavaScriptInvocation> flushInvocations(UI ui) {
+        ui.getInternals().getStateTree().runExecutionsBeforeClientResponse();
+        return ui.getInternals().dumpPendingJavaScriptInvocations();
+    }
+
+    private static List<String> flushExpressions(UI ui) {
+        return flushInvocations(ui).stream()
+                .map(pending -> pending.getInvocation().getExpression())
+                .collect(Collectors.toList());
+    }
+}
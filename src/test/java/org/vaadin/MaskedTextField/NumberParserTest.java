@@ -0,0 +1,32 @@
+package org.vaadin.MaskedTextField;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+
+public class NumberParserTest {
+
+    @Test
+    public void parseLong() {
+        Assert.assertEquals(Long.valueOf(1234567), NumberParser.parseLong("1 234 567"));
+        Assert.assertEquals(Long.valueOf(-42), NumberParser.parseLong("-42"));
+        Assert.assertEquals(Long.valueOf(Long.MAX_VALUE), NumberParser.parseLong("9223372036854775807"));
+        Assert.assertEquals(Long.valueOf(Long.MIN_VALUE), NumberParser.parseLong("-9223372036854775808"));
+        Assert.assertNull(NumberParser.parseLong("9223372036854775808"));
+        Assert.assertNull(NumberParser.parseLong(""));
+        Assert.assertNull(NumberParser.parseLong("-"));
+    }
+
+    @Test
+    public void parseBigDecimal() {
+        Assert.assertEquals(new BigDecimal("1234.56"), NumberParser.parseBigDecimal("1 234,56", ','));
+        Assert.assertEquals(new BigDecimal("-0.05"), NumberParser.parseBigDecimal("-0.05", ','));
+        Assert.assertEquals(new BigDecimal("0.00"), NumberParser.parseBigDecimal("0.00", ','));
+        Assert.assertEquals(new BigDecimal("12345678901234567890.123"),
+                NumberParser.parseBigDecimal("12345678901234567890.123", ','));
+        Assert.assertEquals(new BigDecimal("-98765432109876543210"),
+                NumberParser.parseBigDecimal("-98765432109876543210", ','));
+        Assert.assertNull(NumberParser.parseBigDecimal("", ','));
+    }
+}